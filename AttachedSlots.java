@@ -0,0 +1,150 @@
+package com.qqcomic.widget;
+
+import com.qqcomic.entity.ComicSectionPicInfo;
+
+/**
+ * Per child layout state of ScrollReaderListView kept in parallel primitive arrays, slot i describing child i.
+ * Holds the adapter index, item, top and height of every attached child as it has been laid out, so the layout
+ * hot loops read them without fetching and casting the child's tag. Only the children laid out per item hold a slot:
+ * while the stitched canvas is drawn its tiles are the only children and no slot is held, so the container guards
+ * every access by child index with mTilesAttached
+ * Created for ScrollReaderListView.
+ */
+class AttachedSlots {
+
+	// Defines how many slots are allocated up front, a screen rarely holds more children
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] mAdapterIndices = new int[INITIAL_CAPACITY];
+	private int[] mTops = new int[INITIAL_CAPACITY];
+	private int[] mHeights = new int[INITIAL_CAPACITY];
+	private ComicSectionPicInfo[] mPicInfos = new ComicSectionPicInfo[INITIAL_CAPACITY];
+
+	private int mCount;
+
+	int size() {
+		return mCount;
+	}
+
+	/**
+	 * Inserts the slot of a child being attached, the slots from the given one on are moved down
+	 * @param slot
+	 * @param adapterIndex
+	 * @param picInfo the item the child is bound to
+	 * @param top
+	 * @param height
+	 */
+	void insert(int slot, int adapterIndex, ComicSectionPicInfo picInfo, int top, int height) {
+		if (mCount == mAdapterIndices.length) {
+			int capacity = mCount * 2;
+			mAdapterIndices = grow(mAdapterIndices, capacity);
+			mTops = grow(mTops, capacity);
+			mHeights = grow(mHeights, capacity);
+			ComicSectionPicInfo[] picInfos = new ComicSectionPicInfo[capacity];
+			System.arraycopy(mPicInfos, 0, picInfos, 0, mCount);
+			mPicInfos = picInfos;
+		}
+		int moved = mCount - slot;
+		if (moved > 0) {
+			System.arraycopy(mAdapterIndices, slot, mAdapterIndices, slot + 1, moved);
+			System.arraycopy(mTops, slot, mTops, slot + 1, moved);
+			System.arraycopy(mHeights, slot, mHeights, slot + 1, moved);
+			System.arraycopy(mPicInfos, slot, mPicInfos, slot + 1, moved);
+		}
+		mAdapterIndices[slot] = adapterIndex;
+		mPicInfos[slot] = picInfo;
+		mTops[slot] = top;
+		mHeights[slot] = height;
+		mCount++;
+	}
+
+	/**
+	 * Removes the slot of a child being detached, the slots after it are moved up
+	 * @param slot
+	 */
+	void remove(int slot) {
+		int moved = mCount - slot - 1;
+		if (moved > 0) {
+			System.arraycopy(mAdapterIndices, slot + 1, mAdapterIndices, slot, moved);
+			System.arraycopy(mTops, slot + 1, mTops, slot, moved);
+			System.arraycopy(mHeights, slot + 1, mHeights, slot, moved);
+			System.arraycopy(mPicInfos, slot + 1, mPicInfos, slot, moved);
+		}
+		mCount--;
+		// The items are not held once detached
+		mPicInfos[mCount] = null;
+	}
+
+	void clear() {
+		for (int i = 0; i < mCount; i++) {
+			mPicInfos[i] = null;
+		}
+		mCount = 0;
+	}
+
+	int getAdapterIndex(int slot) {
+		return mAdapterIndices[slot];
+	}
+
+	ComicSectionPicInfo getPicInfo(int slot) {
+		return mPicInfos[slot];
+	}
+
+	/**
+	 * Records the item a child has been bound to again
+	 * @param slot
+	 * @param picInfo
+	 */
+	void setPicInfo(int slot, ComicSectionPicInfo picInfo) {
+		mPicInfos[slot] = picInfo;
+	}
+
+	int getTop(int slot) {
+		return mTops[slot];
+	}
+
+	int getHeight(int slot) {
+		return mHeights[slot];
+	}
+
+	int getBottom(int slot) {
+		return mTops[slot] + mHeights[slot];
+	}
+
+	/**
+	 * Records where a child has been laid out
+	 * @param slot
+	 * @param top
+	 * @param height
+	 */
+	void setBounds(int slot, int top, int height) {
+		mTops[slot] = top;
+		mHeights[slot] = height;
+	}
+
+	/**
+	 * Moves every slot by the given distance, as the children are offset
+	 * @param dy
+	 */
+	void offset(int dy) {
+		for (int i = 0; i < mCount; i++) {
+			mTops[i] += dy;
+		}
+	}
+
+	/**
+	 * Shifts every adapter index, when items are inserted into or removed from the front of the adapter
+	 * @param itemDelta
+	 */
+	void shiftAdapterIndices(int itemDelta) {
+		for (int i = 0; i < mCount; i++) {
+			mAdapterIndices[i] += itemDelta;
+		}
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		int[] grown = new int[capacity];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
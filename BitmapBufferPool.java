@@ -0,0 +1,266 @@
+package com.qqcomic.widget;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import com.qqcomic.entity.ComicSectionPicInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A pool of bitmap pixel buffers released by recycled children, to be passed as BitmapFactory.Options.inBitmap
+ * so decoding the next page reuses a buffer instead of allocating one. Comic strips mostly share a handful of dimensions,
+ * so buffers are bucketed by their allocation size and nearly every decode finds one.
+ * Since KitKat a buffer at least as large as the decoded image can be reused, up to twice the size needed so little memory
+ * is wasted. Before KitKat only a buffer of exactly the same dimensions and config can be reused.
+ * The pool holds at most a byte budget. Buffers are released on behalf of an owner, the container they were displayed in,
+ * and when the budget is exceeded the least recently released buffer of the owner holding the most above its fair share
+ * is evicted. Every method may be called from a decoding thread
+ */
+public class BitmapBufferPool {
+
+	// Defines how much larger than needed a reused buffer may be
+	private static final int MAX_SIZE_MULTIPLE = 2;
+
+	private final long mMaxBytes;
+
+	// Released buffers by allocation size
+	private final TreeMap<Integer, LinkedList<PooledBitmap>> mBuckets = new TreeMap<Integer, LinkedList<PooledBitmap>>();
+
+	// Released buffers by owner, from the least recently released, and the bytes each owner holds
+	private final HashMap<Object, LinkedList<PooledBitmap>> mBitmapsByOwner = new HashMap<Object, LinkedList<PooledBitmap>>();
+	private final HashMap<Object, long[]> mOwnerBytes = new HashMap<Object, long[]>();
+
+	private final List<Object> mOwners = new ArrayList<Object>();
+
+	private long mBytes;
+
+	private int mHits;
+	private int mMisses;
+
+	/**
+	 * @param maxBytes the budget of all the buffers held by the pool
+	 */
+	public BitmapBufferPool(long maxBytes) {
+		mMaxBytes = maxBytes;
+	}
+
+	/**
+	 * Registers an owner, the budget is divided fairly between the registered owners
+	 * @param owner
+	 */
+	public synchronized void attach(Object owner) {
+		if (!mOwners.contains(owner)) {
+			mOwners.add(owner);
+		}
+	}
+
+	/**
+	 * Unregisters an owner, the buffers it has released stay pooled for the others until they are evicted
+	 * @param owner
+	 */
+	public synchronized void detach(Object owner) {
+		mOwners.remove(owner);
+		trimToBudget();
+	}
+
+	/**
+	 * Pools the buffer of a bitmap which is no longer displayed
+	 * @param owner the container the bitmap was displayed in
+	 * @param bitmap
+	 */
+	public synchronized void put(Object owner, Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+			return;
+		}
+		PooledBitmap pooled = new PooledBitmap(owner, bitmap, getAllocationSize(bitmap));
+		if (pooled.bytes > mMaxBytes) {
+			return;
+		}
+		LinkedList<PooledBitmap> bucket = mBuckets.get(pooled.bytes);
+		if (bucket == null) {
+			bucket = new LinkedList<PooledBitmap>();
+			mBuckets.put(pooled.bytes, bucket);
+		}
+		bucket.add(pooled);
+		LinkedList<PooledBitmap> owned = mBitmapsByOwner.get(owner);
+		if (owned == null) {
+			owned = new LinkedList<PooledBitmap>();
+			mBitmapsByOwner.put(owner, owned);
+		}
+		owned.add(pooled);
+		addBytes(owner, pooled.bytes);
+		trimToBudget();
+	}
+
+	/**
+	 * Takes a buffer the given image can be decoded into
+	 * @param width
+	 * @param height
+	 * @param config
+	 * @return the bitmap to pass as inBitmap, or null if there is none
+	 */
+	public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+		int needed = width * height * getBytesPerPixel(config);
+		PooledBitmap found = null;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			Map.Entry<Integer, LinkedList<PooledBitmap>> bucket = mBuckets.ceilingEntry(needed);
+			if (bucket != null && bucket.getKey() <= (long) needed * MAX_SIZE_MULTIPLE) {
+				found = bucket.getValue().getLast();
+			}
+		} else {
+			LinkedList<PooledBitmap> bucket = mBuckets.get(needed);
+			if (bucket != null) {
+				for (PooledBitmap pooled : bucket) {
+					if (pooled.bitmap.getWidth() == width && pooled.bitmap.getHeight() == height && pooled.bitmap.getConfig() == config) {
+						found = pooled;
+						break;
+					}
+				}
+			}
+		}
+		if (found == null) {
+			mMisses++;
+			return null;
+		}
+		mHits++;
+		remove(found);
+		return found.bitmap;
+	}
+
+	/**
+	 * Takes a buffer a page can be decoded into, at the given display width
+	 * @param picInfo
+	 * @param width
+	 * @param config
+	 * @return
+	 */
+	public Bitmap get(ComicSectionPicInfo picInfo, int width, Bitmap.Config config) {
+		if (picInfo.dstHeight <= 0) {
+			return null;
+		}
+		return get(width, picInfo.dstHeight, config);
+	}
+
+	public synchronized long getBytes() {
+		return mBytes;
+	}
+
+	/**
+	 * Gets how many requests found a buffer
+	 * @return
+	 */
+	public synchronized int getHitCount() {
+		return mHits;
+	}
+
+	/**
+	 * Gets how many requests found no buffer, each one an allocation of a new bitmap
+	 * @return
+	 */
+	public synchronized int getMissCount() {
+		return mMisses;
+	}
+
+	/**
+	 * Drops every pooled buffer, e.g. when the system is low on memory
+	 */
+	public synchronized void clear() {
+		for (LinkedList<PooledBitmap> owned : mBitmapsByOwner.values()) {
+			for (PooledBitmap pooled : owned) {
+				pooled.bitmap.recycle();
+			}
+		}
+		mBuckets.clear();
+		mBitmapsByOwner.clear();
+		mOwnerBytes.clear();
+		mBytes = 0;
+	}
+
+	/**
+	 * Evicts buffers until the budget is met, each time from the owner holding the most above its fair share
+	 */
+	private void trimToBudget() {
+		while (mBytes > mMaxBytes) {
+			long fairShare = mMaxBytes / Math.max(1, mOwners.size());
+			Object victim = null;
+			long victimExcess = Long.MIN_VALUE;
+			for (Object owner : mBitmapsByOwner.keySet()) {
+				long[] bytes = mOwnerBytes.get(owner);
+				// An owner which is not registered has no share at all
+				long excess = (bytes != null ? bytes[0] : 0) - (mOwners.contains(owner) ? fairShare : 0);
+				if (excess > victimExcess) {
+					victim = owner;
+					victimExcess = excess;
+				}
+			}
+			if (victim == null) {
+				return;
+			}
+			PooledBitmap evicted = mBitmapsByOwner.get(victim).getFirst();
+			remove(evicted);
+			evicted.bitmap.recycle();
+		}
+	}
+
+	private void remove(PooledBitmap pooled) {
+		LinkedList<PooledBitmap> bucket = mBuckets.get(pooled.bytes);
+		bucket.remove(pooled);
+		if (bucket.isEmpty()) {
+			mBuckets.remove(pooled.bytes);
+		}
+		LinkedList<PooledBitmap> owned = mBitmapsByOwner.get(pooled.owner);
+		owned.remove(pooled);
+		if (owned.isEmpty()) {
+			mBitmapsByOwner.remove(pooled.owner);
+		}
+		addBytes(pooled.owner, -pooled.bytes);
+	}
+
+	private void addBytes(Object owner, long bytes) {
+		long[] ownerBytes = mOwnerBytes.get(owner);
+		if (ownerBytes == null) {
+			ownerBytes = new long[1];
+			mOwnerBytes.put(owner, ownerBytes);
+		}
+		ownerBytes[0] += bytes;
+		if (ownerBytes[0] == 0) {
+			mOwnerBytes.remove(owner);
+		}
+		mBytes += bytes;
+	}
+
+	private static int getAllocationSize(Bitmap bitmap) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			return bitmap.getAllocationByteCount();
+		}
+		return bitmap.getByteCount();
+	}
+
+	private static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == Bitmap.Config.RGB_565) {
+			return 2;
+		}
+		if (config == Bitmap.Config.ALPHA_8) {
+			return 1;
+		}
+		return 4;
+	}
+
+	private static class PooledBitmap {
+		final Object owner;
+		final Bitmap bitmap;
+		final int bytes;
+
+		PooledBitmap(Object owner, Bitmap bitmap, int bytes) {
+			this.owner = owner;
+			this.bitmap = bitmap;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package com.qqcomic.widget;
+
+import com.qqcomic.entity.ComicSectionPicInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Disk-backed cache of the page dimensions of each chapter, read through a {@link MappedByteBuffer}.
+ * Opening a chapter that has been read before gives the height, width and offset of any page
+ * in O(1) without parsing or allocating per page. The dimensions are those of the page images, so a page keeps its
+ * aspect ratio whatever width it is displayed at. {@link ChapterWindow} fills the heights of the pages it pages in from it.
+ *
+ * File layout, big endian:
+ * <pre>
+ * int magic, int version, int count, int crc32 of the payload
+ * int[count] widths, int[count] heights, int[count + 1] prefix sums of the heights
+ * </pre>
+ */
+public class ChapterMetricsCache {
+
+	private static final int MAGIC = 0x43534d43;
+	private static final int VERSION = 2;
+
+	private static final int HEADER_SIZE = 16;
+	private static final int CRC_BUFFER_SIZE = 4096;
+
+	private static final String FILE_SUFFIX = ".metrics";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final File mDirectory;
+
+	public ChapterMetricsCache(File directory) {
+		mDirectory = directory;
+	}
+
+	/**
+	 * Writes the dimensions of a chapter's pages, replacing any previous file atomically
+	 * @param chapterKey
+	 * @param widths
+	 * @param heights
+	 * @param count
+	 * @throws IOException
+	 */
+	public void write(String chapterKey, int[] widths, int[] heights, int count) throws IOException {
+		if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+			throw new IOException("cannot create " + mDirectory);
+		}
+		int payloadSize = (3 * count + 1) * 4;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+		buffer.position(HEADER_SIZE);
+		for (int i = 0; i < count; i++) {
+			buffer.putInt(widths[i]);
+		}
+		for (int i = 0; i < count; i++) {
+			buffer.putInt(heights[i]);
+		}
+		int offset = 0;
+		buffer.putInt(offset);
+		for (int i = 0; i < count; i++) {
+			offset += Math.max(heights[i], 0);
+			buffer.putInt(offset);
+		}
+
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, count);
+		buffer.putInt(12, checksum(buffer, HEADER_SIZE, payloadSize));
+		buffer.rewind();
+
+		File file = getFile(chapterKey);
+		File temp = new File(mDirectory, file.getName() + TEMP_SUFFIX);
+		RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		} finally {
+			raf.close();
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("cannot rename " + temp + " to " + file);
+		}
+	}
+
+	/**
+	 * Gets the dimensions of a chapter's page images from the cache, or on a miss probes them from the image headers and
+	 * caches them. A chapter with an image that cannot be probed yet, e.g. not downloaded, is not cached.
+	 * Blocks on disk, must be called on the thread loading the chapter
+	 * @param chapterKey
+	 * @param files the page images, in page order
+	 * @param prober
+	 * @return the metrics, or null if they could not all be read
+	 */
+	public Metrics load(String chapterKey, File[] files, ImageHeaderProber prober) {
+		Metrics metrics = open(chapterKey);
+		if (metrics != null && metrics.getCount() == files.length) {
+			return metrics;
+		}
+		int count = files.length;
+		int[] widths = new int[count];
+		int[] heights = new int[count];
+		prober.probe(files, widths, heights);
+		for (int i = 0; i < count; i++) {
+			if (widths[i] <= 0 || heights[i] <= 0) {
+				return null;
+			}
+		}
+		try {
+			write(chapterKey, widths, heights, count);
+		} catch (IOException e) {
+			return null;
+		}
+		return open(chapterKey);
+	}
+
+	/**
+	 * Opens the cached dimensions of a chapter
+	 * @param chapterKey
+	 * @return the metrics, or null if the chapter has not been cached, was written by another version or is corrupted
+	 */
+	public Metrics open(String chapterKey) {
+		File file = getFile(chapterKey);
+		if (!file.isFile()) {
+			return null;
+		}
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				file.delete();
+				return null;
+			}
+			// The mapping stays valid after the file is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				file.delete();
+				return null;
+			}
+			int count = buffer.getInt(8);
+			int payloadSize = (3 * count + 1) * 4;
+			if (count < 0 || size != HEADER_SIZE + (long) payloadSize
+					|| buffer.getInt(12) != checksum(buffer, HEADER_SIZE, payloadSize)) {
+				file.delete();
+				return null;
+			}
+			return new Metrics(buffer, count);
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the cached dimensions of a chapter
+	 * @param chapterKey
+	 */
+	public void remove(String chapterKey) {
+		getFile(chapterKey).delete();
+	}
+
+	private File getFile(String chapterKey) {
+		StringBuilder name = new StringBuilder(chapterKey.length() + FILE_SUFFIX.length());
+		for (int i = 0; i < chapterKey.length(); i++) {
+			char c = chapterKey.charAt(i);
+			name.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+		}
+		// Keys that sanitize to the same name are told apart by their hash
+		name.append('_').append(Integer.toHexString(chapterKey.hashCode())).append(FILE_SUFFIX);
+		return new File(mDirectory, name.toString());
+	}
+
+	private static int checksum(ByteBuffer buffer, int offset, int length) {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[Math.min(CRC_BUFFER_SIZE, Math.max(length, 1))];
+		ByteBuffer source = buffer.duplicate();
+		source.clear();
+		source.position(offset);
+		int remaining = length;
+		while (remaining > 0) {
+			int count = Math.min(remaining, chunk.length);
+			source.get(chunk, 0, count);
+			crc.update(chunk, 0, count);
+			remaining -= count;
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * The cached dimensions of a single chapter, backed by the mapped file
+	 */
+	public static class Metrics {
+
+		private final IntBuffer mWidths;
+		private final IntBuffer mHeights;
+		private final IntBuffer mOffsets;
+		private final int mCount;
+
+		private Metrics(ByteBuffer buffer, int count) {
+			mCount = count;
+			mWidths = slice(buffer, HEADER_SIZE, count);
+			mHeights = slice(buffer, HEADER_SIZE + count * 4, count);
+			mOffsets = slice(buffer, HEADER_SIZE + count * 8, count + 1);
+		}
+
+		private static IntBuffer slice(ByteBuffer buffer, int offset, int count) {
+			ByteBuffer source = buffer.duplicate();
+			source.position(offset);
+			source.limit(offset + count * 4);
+			return source.slice().asIntBuffer();
+		}
+
+		public int getCount() {
+			return mCount;
+		}
+
+		public int getWidth(int index) {
+			return mWidths.get(index);
+		}
+
+		public int getHeight(int index) {
+			return mHeights.get(index);
+		}
+
+		/**
+		 * Gets the offset of the page's top edge, the sum of the heights of the pages before it
+		 * @param index
+		 * @param dividerHeight the height of the divider laid out between pages
+		 * @return
+		 */
+		public int getOffset(int index, int dividerHeight) {
+			return mOffsets.get(index) + index * dividerHeight;
+		}
+
+		public int getTotalHeight(int dividerHeight) {
+			return mCount == 0 ? 0 : getOffset(mCount, dividerHeight) - dividerHeight;
+		}
+
+		/**
+		 * Finds the page which covers the given offset by binary search over the prefix sums
+		 * @param offset
+		 * @param dividerHeight
+		 * @return
+		 */
+		public int indexAt(int offset, int dividerHeight) {
+			int low = 0;
+			int high = mCount - 1;
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (getOffset(middle, dividerHeight) <= offset) {
+					low = middle;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Fills the dstHeight of the given pages whose height is not known yet, scaling each page to the display width.
+		 * The pages must be the pages the metrics were written for
+		 * @param pages
+		 * @param dstWidth the width the pages are displayed at
+		 * @return whether the page count matches and the heights have been filled
+		 */
+		public boolean applyTo(List<ComicSectionPicInfo> pages, int dstWidth) {
+			if (pages.size() != mCount || dstWidth <= 0) {
+				return false;
+			}
+			for (int i = 0; i < mCount; i++) {
+				ComicSectionPicInfo picInfo = pages.get(i);
+				int width = mWidths.get(i);
+				if (picInfo.dstHeight <= 0 && width > 0) {
+					picInfo.dstHeight = (int) ((long) mHeights.get(i) * dstWidth / width);
+				}
+			}
+			return true;
+		}
+	}
+}
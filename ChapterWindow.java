@@ -0,0 +1,476 @@
+package com.qqcomic.widget;
+
+import android.os.SystemClock;
+
+import com.qqcomic.entity.ComicSectionPicInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Windowed chapter data source used to comic continuous reading mode.
+ * Keeps at most {@code maxResidentChapters} chapters resident, pages chapters in at either end
+ * when the container reaches its header or footer, and evicts the chapters far from the reading position.
+ * The adapter attached to {@link ScrollReaderListView} should delegate {@code getCount()} and {@code getItem(int)} to this window.
+ */
+public class ChapterWindow {
+
+	// Defines the direction a chapter is requested in
+	public static final int DIRECTION_PREVIOUS = -1;
+	public static final int DIRECTION_NEXT = 1;
+
+	// Defines how many chapters are kept resident by default
+	private static final int DEFAULT_MAX_RESIDENT_CHAPTERS = 3;
+
+	// Defines how long the prefetch waits before requesting a chapter which failed to load again, doubled on every
+	// consecutive failure up to the max, in milliseconds
+	private static final long RETRY_DELAY = 1000;
+	private static final long MAX_RETRY_DELAY = 30000;
+
+	// The resident chapters, ordered from the earliest to the latest
+	private final List<Chapter> mChapters = new ArrayList<Chapter>();
+
+	// The max number of chapters kept resident
+	private int mMaxResidentChapters;
+
+	// The total number of pages of all resident chapters
+	private int mCount;
+
+	// How many pages away from either end of the window a chapter will be requested
+	private int mPrefetchDistance = 0;
+
+	// Tracks whether a chapter is being loaded in each direction, we only want to request it once
+	private boolean mLoadingPrevious = false;
+	private boolean mLoadingNext = false;
+
+	// Tracks whether there is no more chapter in each direction
+	private boolean mReachedFirst = false;
+	private boolean mReachedLast = false;
+
+	// Tracks whether the visible range was within the prefetch distance of each end at the last check, so the adjacent
+	// chapter is requested when the range enters that zone rather than on every check. Both start set, so opening
+	// a chapter at either end does not request the adjacent one before the reader moves
+	private boolean mNearFirst = true;
+	private boolean mNearLast = true;
+
+	// Tracks the consecutive failures in each direction and when the prefetch may request that chapter again
+	private int mPreviousFailures = 0;
+	private int mNextFailures = 0;
+	private long mRetryPreviousAt = 0;
+	private long mRetryNextAt = 0;
+
+	private ChapterLoader mLoader;
+
+	// The cached page dimensions the heights of the pages paged in are filled from, or null
+	private ChapterMetricsCache mMetricsCache;
+
+	private Host mHost;
+
+	public ChapterWindow(ChapterLoader loader) {
+		this(loader, DEFAULT_MAX_RESIDENT_CHAPTERS);
+	}
+
+	public ChapterWindow(ChapterLoader loader, int maxResidentChapters) {
+		if (maxResidentChapters < 1) {
+			throw new IllegalArgumentException("maxResidentChapters must be positive: " + maxResidentChapters);
+		}
+		mLoader = loader;
+		mMaxResidentChapters = maxResidentChapters;
+	}
+
+	/**
+	 * Attach the container which displays this window, as defined in {@code ScrollReaderListView #setChapterWindow(ChapterWindow)}
+	 * @param host
+	 */
+	void attachHost(Host host) {
+		mHost = host;
+	}
+
+	/**
+	 * Sets the cache the dstHeight of the pages paged in is filled from, when the loader delivers them without it.
+	 * The chapter keys are cached by their string value, the loader should {@link ChapterMetricsCache#load} every chapter
+	 * on its own thread before delivering it, so it is read here without probing
+	 * @param metricsCache
+	 */
+	public void setMetricsCache(ChapterMetricsCache metricsCache) {
+		mMetricsCache = metricsCache;
+	}
+
+	/**
+	 * Sets how many pages away from either end of the window the adjacent chapter will be requested
+	 * @param prefetchDistance
+	 */
+	public void setPrefetchDistance(int prefetchDistance) {
+		mPrefetchDistance = prefetchDistance;
+	}
+
+	public int getPrefetchDistance() {
+		return mPrefetchDistance;
+	}
+
+	/**
+	 * Drops every resident chapter and starts the window with the given chapter
+	 * @param chapterKey
+	 * @param pages
+	 */
+	public void setInitialChapter(Object chapterKey, List<ComicSectionPicInfo> pages) {
+		applyCachedMetrics(chapterKey, pages);
+		mChapters.clear();
+		mChapters.add(new Chapter(chapterKey, pages));
+		mCount = pages.size();
+		mLoadingPrevious = false;
+		mLoadingNext = false;
+		mReachedFirst = false;
+		mReachedLast = false;
+		mNearFirst = true;
+		mNearLast = true;
+		mPreviousFailures = 0;
+		mNextFailures = 0;
+		mRetryPreviousAt = 0;
+		mRetryNextAt = 0;
+		if (mHost != null) {
+			mHost.onWindowChanged();
+		}
+	}
+
+	/**
+	 * Gets the total number of resident pages
+	 * @return
+	 */
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * Gets the page at the given window position
+	 * @param position
+	 * @return
+	 */
+	public ComicSectionPicInfo getItem(int position) {
+		int chapterIndex = getChapterIndex(position);
+		Chapter chapter = mChapters.get(chapterIndex);
+		return chapter.pages.get(position - getChapterStart(chapterIndex));
+	}
+
+	/**
+	 * Gets the key of the chapter which contains the given window position
+	 * @param position
+	 * @return
+	 */
+	public Object getChapterKey(int position) {
+		return mChapters.get(getChapterIndex(position)).key;
+	}
+
+	/**
+	 * Gets the window position of the first page of the chapter with the given key, or -1 if it is not resident
+	 * @param chapterKey
+	 * @return
+	 */
+	public int getChapterStartPosition(Object chapterKey) {
+		int start = 0;
+		for (Chapter chapter : mChapters) {
+			if (chapter.key.equals(chapterKey)) {
+				return start;
+			}
+			start += chapter.pages.size();
+		}
+		return -1;
+	}
+
+	public int getResidentChapterCount() {
+		return mChapters.size();
+	}
+
+	/**
+	 * Requests the chapter before the earliest resident chapter, if it is not already being loaded
+	 */
+	public void requestPrevious() {
+		if (mLoadingPrevious || mReachedFirst || mChapters.isEmpty() || mLoader == null) {
+			return;
+		}
+		mLoadingPrevious = true;
+		mLoader.loadAdjacentChapter(mChapters.get(0).key, DIRECTION_PREVIOUS, this);
+	}
+
+	/**
+	 * Requests the chapter after the latest resident chapter, if it is not already being loaded
+	 */
+	public void requestNext() {
+		if (mLoadingNext || mReachedLast || mChapters.isEmpty() || mLoader == null) {
+			return;
+		}
+		mLoadingNext = true;
+		mLoader.loadAdjacentChapter(mChapters.get(mChapters.size() - 1).key, DIRECTION_NEXT, this);
+	}
+
+	/**
+	 * Called by the {@link ChapterLoader} on the UI thread when the adjacent chapter has been loaded
+	 * @param direction
+	 * @param chapterKey
+	 * @param pages
+	 */
+	public void onChapterLoaded(int direction, Object chapterKey, List<ComicSectionPicInfo> pages) {
+		if (direction == DIRECTION_PREVIOUS) {
+			mLoadingPrevious = false;
+			mPreviousFailures = 0;
+			mRetryPreviousAt = 0;
+			if (mChapters.isEmpty() || pages == null || pages.isEmpty()) {
+				return;
+			}
+			applyCachedMetrics(chapterKey, pages);
+			mChapters.add(0, new Chapter(chapterKey, pages));
+			mCount += pages.size();
+			if (mHost != null) {
+				mHost.onWindowShifted(pages.size());
+			}
+		} else {
+			mLoadingNext = false;
+			mNextFailures = 0;
+			mRetryNextAt = 0;
+			if (mChapters.isEmpty() || pages == null || pages.isEmpty()) {
+				return;
+			}
+			applyCachedMetrics(chapterKey, pages);
+			mChapters.add(new Chapter(chapterKey, pages));
+			mCount += pages.size();
+		}
+
+		evictFarChapters(direction);
+
+		if (mHost != null) {
+			mHost.onWindowChanged();
+		}
+	}
+
+	/**
+	 * Called by the {@link ChapterLoader} when there is no more chapter in the given direction
+	 * @param direction
+	 */
+	public void onNoMoreChapter(int direction) {
+		if (direction == DIRECTION_PREVIOUS) {
+			mLoadingPrevious = false;
+			mReachedFirst = true;
+			mPreviousFailures = 0;
+			mRetryPreviousAt = 0;
+		} else {
+			mLoadingNext = false;
+			mReachedLast = true;
+			mNextFailures = 0;
+			mRetryNextAt = 0;
+		}
+	}
+
+	/**
+	 * Called by the {@link ChapterLoader} when loading the adjacent chapter failed, so it can be requested again.
+	 * The prefetch requests it again once the retry delay has elapsed, an explicit request does not wait
+	 * @param direction
+	 */
+	public void onChapterLoadFailed(int direction) {
+		long now = SystemClock.uptimeMillis();
+		if (direction == DIRECTION_PREVIOUS) {
+			mLoadingPrevious = false;
+			mPreviousFailures++;
+			mRetryPreviousAt = now + getRetryDelay(mPreviousFailures);
+		} else {
+			mLoadingNext = false;
+			mNextFailures++;
+			mRetryNextAt = now + getRetryDelay(mNextFailures);
+		}
+	}
+
+	/**
+	 * Checks if the container has come close enough to either end of the window to request the adjacent chapter.
+	 * A chapter is requested when the visible range enters the prefetch distance of an end, or while the range stays there
+	 * once the retry delay of a failed request has elapsed. Must not be called within a layout pass, as a synchronous
+	 * loader delivers the chapter and changes the window before the request returns
+	 * @param topPosition
+	 * @param bottomPosition
+	 */
+	void checkPrefetch(int topPosition, int bottomPosition) {
+		if (mChapters.isEmpty()) {
+			return;
+		}
+		long now = SystemClock.uptimeMillis();
+		boolean nearFirst = topPosition >= 0 && topPosition <= mPrefetchDistance;
+		boolean nearLast = bottomPosition >= 0 && mCount - 1 - bottomPosition <= mPrefetchDistance;
+		boolean requestPrevious = nearFirst && (!mNearFirst || mPreviousFailures > 0) && now >= mRetryPreviousAt;
+		boolean requestNext = nearLast && (!mNearLast || mNextFailures > 0) && now >= mRetryNextAt;
+		mNearFirst = nearFirst;
+		mNearLast = nearLast;
+		if (requestPrevious) {
+			requestPrevious();
+		}
+		if (requestNext) {
+			requestNext();
+		}
+	}
+
+	/**
+	 * Evicts the chapters a page-in had to keep because they still had attached views, until at most the max number of
+	 * chapters are resident again. The chapter the attached range is farther from goes first. Must not be called within
+	 * a layout pass, the container calls it with the prefetch check
+	 */
+	void trimResidentChapters() {
+		if (mChapters.size() <= mMaxResidentChapters || mHost == null) {
+			return;
+		}
+		int firstAttached = mHost.getFirstAttachedPosition();
+		int lastAttached = mHost.getLastAttachedPosition();
+		if (firstAttached < 0) {
+			return;
+		}
+		int residentCount = mChapters.size();
+		// An end whose adjacent chapter is being loaded is kept, the chapter is delivered next to it
+		boolean evictFirst = !mLoadingPrevious;
+		boolean evictLast = !mLoadingNext;
+		if (firstAttached >= mCount - 1 - lastAttached) {
+			if (evictFirst) {
+				evictFarChapters(DIRECTION_NEXT);
+			}
+			if (evictLast) {
+				evictFarChapters(DIRECTION_PREVIOUS);
+			}
+		} else {
+			if (evictLast) {
+				evictFarChapters(DIRECTION_PREVIOUS);
+			}
+			if (evictFirst) {
+				evictFarChapters(DIRECTION_NEXT);
+			}
+		}
+		if (mChapters.size() != residentCount) {
+			mHost.onWindowChanged();
+		}
+	}
+
+	/**
+	 * Fills the heights the loader did not deliver from the cached page dimensions, so the pages are laid out at their
+	 * height rather than the placeholder height
+	 * @param chapterKey
+	 * @param pages
+	 */
+	private void applyCachedMetrics(Object chapterKey, List<ComicSectionPicInfo> pages) {
+		if (mMetricsCache == null || mHost == null) {
+			return;
+		}
+		int dstWidth = mHost.getContentWidth();
+		if (dstWidth <= 0) {
+			return;
+		}
+		for (ComicSectionPicInfo picInfo : pages) {
+			if (picInfo.dstHeight <= 0) {
+				ChapterMetricsCache.Metrics metrics = mMetricsCache.open(String.valueOf(chapterKey));
+				if (metrics != null) {
+					metrics.applyTo(pages, dstWidth);
+				}
+				return;
+			}
+		}
+	}
+
+	private static long getRetryDelay(int failures) {
+		return Math.min(MAX_RETRY_DELAY, RETRY_DELAY << Math.min(failures - 1, 5));
+	}
+
+	/**
+	 * Evicts chapters at the end opposite to the one just paged in, until at most the max number of chapters are resident.
+	 * A chapter which still has an attached view is never evicted, {@link #trimResidentChapters} evicts it later
+	 * @param pagedInDirection
+	 */
+	private void evictFarChapters(int pagedInDirection) {
+		while (mChapters.size() > mMaxResidentChapters) {
+			int firstAttached = mHost != null ? mHost.getFirstAttachedPosition() : -1;
+			int lastAttached = mHost != null ? mHost.getLastAttachedPosition() : -1;
+
+			if (pagedInDirection == DIRECTION_NEXT) {
+				Chapter first = mChapters.get(0);
+				if (firstAttached >= 0 && firstAttached < first.pages.size()) {
+					return;
+				}
+				mChapters.remove(0);
+				mCount -= first.pages.size();
+				mReachedFirst = false;
+				if (mHost != null) {
+					mHost.onWindowShifted(-first.pages.size());
+				}
+			} else {
+				Chapter last = mChapters.get(mChapters.size() - 1);
+				if (lastAttached >= mCount - last.pages.size()) {
+					return;
+				}
+				mChapters.remove(mChapters.size() - 1);
+				mCount -= last.pages.size();
+				mReachedLast = false;
+			}
+		}
+	}
+
+	/**
+	 * Finds the index of the resident chapter which contains the given window position
+	 * @param position
+	 * @return
+	 */
+	private int getChapterIndex(int position) {
+		if (position < 0 || position >= mCount) {
+			throw new IndexOutOfBoundsException("position: " + position + ", count: " + mCount);
+		}
+		int start = 0;
+		int chapterCount = mChapters.size();
+		for (int i = 0; i < chapterCount; i++) {
+			start += mChapters.get(i).pages.size();
+			if (position < start) {
+				return i;
+			}
+		}
+		return chapterCount - 1;
+	}
+
+	private int getChapterStart(int chapterIndex) {
+		int start = 0;
+		for (int i = 0; i < chapterIndex; i++) {
+			start += mChapters.get(i).pages.size();
+		}
+		return start;
+	}
+
+	private static class Chapter {
+		final Object key;
+		final List<ComicSectionPicInfo> pages;
+
+		Chapter(Object key, List<ComicSectionPicInfo> pages) {
+			this.key = key;
+			this.pages = pages;
+		}
+	}
+
+	/**
+	 * Interface definition for a callback used to load the chapters adjacent to the window
+	 */
+	public interface ChapterLoader {
+		/**
+		 * Loads the chapter adjacent to the given chapter in the given direction. The result must be delivered
+		 * on the UI thread through {@link #onChapterLoaded}, {@link #onNoMoreChapter} or {@link #onChapterLoadFailed}
+		 */
+		void loadAdjacentChapter(Object chapterKey, int direction, ChapterWindow window);
+	}
+
+	/**
+	 * Interface implemented by the container which displays the window
+	 */
+	interface Host {
+		int getFirstAttachedPosition();
+		int getLastAttachedPosition();
+
+		/**
+		 * @return the width the pages are displayed at, which their dstHeight is given for, or 0 if not laid out yet
+		 */
+		int getContentWidth();
+
+		/**
+		 * Called when pages are inserted into or removed from the front of the window, before the adapter is notified
+		 */
+		void onWindowShifted(int itemDelta);
+
+		void onWindowChanged();
+	}
+}
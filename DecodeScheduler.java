@@ -0,0 +1,400 @@
+package com.qqcomic.widget;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the image decode and upload work adapters of {@link ScrollReaderListView} trigger from getView.
+ * Work is prioritized by its distance from the attached items. While the container scrolls only the work of attached items
+ * is decoded, and their uploads are limited to one per frame, the rest waits until scrolling stops and is then drained
+ * closest first, a few uploads per frame. Uploads always run on a frame of their own, never within a layout pass.
+ * Pending and decoded work is bounded, the work farthest from the attached items is dropped when full.
+ * Every method must be called on the UI thread
+ */
+public class DecodeScheduler {
+
+	// Defines how much work may be waiting to be decoded or uploaded by default
+	public static final int DEFAULT_MAX_PENDING = 24;
+
+	// Defines how many decodes may run at once by default
+	private static final int DEFAULT_MAX_RUNNING = 2;
+
+	// Defines how many uploads are done per frame while scrolling, so a frame is never spent uploading
+	private static final int MAX_UPLOADS_WHILE_SCROLLING = 1;
+
+	// Defines how many uploads are done per frame once scrolling has stopped
+	private static final int MAX_UPLOADS_PER_FRAME = 4;
+
+	private static ExecutorService sDefaultExecutor;
+
+	private final Executor mExecutor;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	// The work waiting to be decoded, and the work decoded and waiting to be uploaded
+	private final ArrayList<Entry> mPending = new ArrayList<Entry>();
+	private final ArrayList<Entry> mDecoded = new ArrayList<Entry>();
+
+	// Every work not uploaded nor dropped yet, by key
+	private final HashMap<Object, Entry> mEntries = new HashMap<Object, Entry>();
+
+	private int mMaxPending = DEFAULT_MAX_PENDING;
+	private int mMaxRunning = DEFAULT_MAX_RUNNING;
+
+	// The number of decodes running on the executor
+	private int mRunning;
+
+	// Whether a frame is posted to upload the decoded work
+	private boolean mUploadPosted;
+
+	private Host mHost;
+
+	public DecodeScheduler() {
+		this(getDefaultExecutor());
+	}
+
+	public DecodeScheduler(Executor executor) {
+		mExecutor = executor;
+	}
+
+	private static synchronized ExecutorService getDefaultExecutor() {
+		if (sDefaultExecutor == null) {
+			sDefaultExecutor = Executors.newFixedThreadPool(DEFAULT_MAX_RUNNING, new ThreadFactory() {
+				private final AtomicInteger mCount = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							runnable.run();
+						}
+					}, "ReaderDecode #" + mCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sDefaultExecutor;
+	}
+
+	void attachHost(Host host) {
+		mHost = host;
+	}
+
+	/**
+	 * Sets how much work may be waiting to be decoded or uploaded, the work farthest from the attached items is dropped beyond it
+	 * @param maxPending
+	 */
+	public void setMaxPending(int maxPending) {
+		if (maxPending < 1) {
+			throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+		}
+		mMaxPending = maxPending;
+		while (mPending.size() + mDecoded.size() > mMaxPending) {
+			dropFarthest();
+		}
+	}
+
+	/**
+	 * Sets how many decodes may run at once
+	 * @param maxRunning
+	 */
+	public void setMaxRunning(int maxRunning) {
+		if (maxRunning < 1) {
+			throw new IllegalArgumentException("maxRunning must be positive: " + maxRunning);
+		}
+		mMaxRunning = maxRunning;
+		dispatch();
+	}
+
+	/**
+	 * Gets the number of works waiting to be decoded or uploaded
+	 * @return
+	 */
+	public int getPendingCount() {
+		return mPending.size() + mDecoded.size();
+	}
+
+	/**
+	 * Submits the work of an item, replacing any work submitted with the same key. The key is usually the view
+	 * the image is bound to, so rebinding a recycled view drops the work of the item it showed before
+	 * @param key
+	 * @param adapterIndex
+	 * @param task
+	 */
+	public void submit(Object key, int adapterIndex, Task task) {
+		cancel(key);
+		Entry entry = new Entry(key, adapterIndex, task);
+		mEntries.put(key, entry);
+		mPending.add(entry);
+		while (mPending.size() + mDecoded.size() > mMaxPending) {
+			dropFarthest();
+		}
+		dispatch();
+	}
+
+	/**
+	 * Cancels the work submitted with the given key. A decode already running completes, but its result is never uploaded,
+	 * and the work is only released once the decode has returned
+	 * @param key
+	 */
+	public void cancel(Object key) {
+		Entry entry = mEntries.remove(key);
+		if (entry != null) {
+			drop(entry);
+		}
+	}
+
+	/**
+	 * Cancels every work not uploaded yet
+	 */
+	public void cancelAll() {
+		ArrayList<Entry> entries = new ArrayList<Entry>(mEntries.values());
+		mEntries.clear();
+		for (Entry entry : entries) {
+			drop(entry);
+		}
+	}
+
+	/**
+	 * Shifts the adapter index of every work, when items are inserted into or removed from the front of the adapter
+	 * @param itemDelta
+	 */
+	void shiftPositions(int itemDelta) {
+		for (Entry entry : mEntries.values()) {
+			entry.adapterIndex += itemDelta;
+		}
+	}
+
+	/**
+	 * Starts decoding as much work as the scroll state allows, closest to the attached items first, and schedules the
+	 * decoded work to be uploaded on the next frame. Called by the container after each layout pass and when scrolling stops
+	 */
+	void dispatch() {
+		boolean scrolling = mHost != null && mHost.isScrolling();
+
+		if (!mDecoded.isEmpty()) {
+			scheduleUploads();
+		}
+
+		while (mRunning < mMaxRunning) {
+			Entry entry = pollClosest(mPending, scrolling);
+			if (entry == null) {
+				break;
+			}
+			mRunning++;
+			entry.running = true;
+			mExecutor.execute(entry);
+		}
+	}
+
+	private void scheduleUploads() {
+		if (mUploadPosted) {
+			return;
+		}
+		mUploadPosted = true;
+		if (mHost != null) {
+			mHost.postOnFrame(mUploader);
+		} else {
+			mHandler.post(mUploader);
+		}
+	}
+
+	/**
+	 * Uploads the decoded work closest to the attached items, within the frame's budget, and goes on next frame if there is more
+	 */
+	private final Runnable mUploader = new Runnable() {
+		@Override
+		public void run() {
+			mUploadPosted = false;
+			boolean scrolling = mHost != null && mHost.isScrolling();
+			int budget = scrolling ? MAX_UPLOADS_WHILE_SCROLLING : MAX_UPLOADS_PER_FRAME;
+			int uploads = 0;
+			while (uploads < budget) {
+				Entry entry = pollClosest(mDecoded, scrolling);
+				if (entry == null) {
+					break;
+				}
+				mEntries.remove(entry.key);
+				entry.task.upload();
+				uploads++;
+			}
+			// The work of detached items waits for scrolling to stop, the container dispatches again then
+			if (uploads == budget && !mDecoded.isEmpty()) {
+				scheduleUploads();
+			}
+		}
+	};
+
+	/**
+	 * Removes and returns the entry closest to the attached items
+	 * @param entries
+	 * @param attachedOnly whether only the entries of attached items may be returned
+	 * @return
+	 */
+	private Entry pollClosest(ArrayList<Entry> entries, boolean attachedOnly) {
+		int closest = -1;
+		int closestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < entries.size(); i++) {
+			int distance = getDistance(entries.get(i).adapterIndex);
+			if (distance < closestDistance) {
+				closest = i;
+				closestDistance = distance;
+			}
+		}
+		if (closest < 0 || (attachedOnly && closestDistance > 0)) {
+			return null;
+		}
+		return entries.remove(closest);
+	}
+
+	private void dropFarthest() {
+		Entry farthest = null;
+		int farthestDistance = -1;
+		for (int pass = 0; pass < 2; pass++) {
+			ArrayList<Entry> entries = pass == 0 ? mPending : mDecoded;
+			for (int i = 0; i < entries.size(); i++) {
+				Entry entry = entries.get(i);
+				int distance = getDistance(entry.adapterIndex);
+				if (distance > farthestDistance) {
+					farthest = entry;
+					farthestDistance = distance;
+				}
+			}
+		}
+		if (farthest != null) {
+			mEntries.remove(farthest.key);
+			drop(farthest);
+		}
+	}
+
+	private void drop(Entry entry) {
+		entry.cancelled = true;
+		if (!mPending.remove(entry)) {
+			mDecoded.remove(entry);
+		}
+		// A running decode may still be writing into what the task holds, onDecoded releases it once the decode returns
+		if (!entry.running) {
+			entry.task.onDropped();
+		}
+	}
+
+	/**
+	 * Gets how many items away from the attached items the given item is, 0 if it is attached
+	 * @param adapterIndex
+	 * @return
+	 */
+	private int getDistance(int adapterIndex) {
+		int first = mHost != null ? mHost.getFirstAttachedPosition() : -1;
+		int last = mHost != null ? mHost.getLastAttachedPosition() : -1;
+		if (first < 0) {
+			return 0;
+		}
+		if (adapterIndex < first) {
+			return first - adapterIndex;
+		}
+		if (adapterIndex > last) {
+			return adapterIndex - last;
+		}
+		return 0;
+	}
+
+	private void onDecoded(Entry entry, boolean succeeded) {
+		mRunning--;
+		entry.running = false;
+		if (entry.cancelled) {
+			// Cancelled while decoding, the release was deferred until now
+			entry.task.onDropped();
+		} else if (succeeded) {
+			mDecoded.add(entry);
+		} else {
+			mEntries.remove(entry.key);
+			entry.cancelled = true;
+			entry.task.onDropped();
+		}
+		dispatch();
+	}
+
+	/**
+	 * A single item's work, decoded on a background thread and uploaded on the UI thread
+	 */
+	public interface Task {
+		/**
+		 * Decodes the image, called on a background thread
+		 */
+		void decode();
+
+		/**
+		 * Shows the decoded image, called on the UI thread
+		 */
+		void upload();
+
+		/**
+		 * Called on the UI thread when the work is cancelled, dropped or its decode failed, to release what it holds
+		 */
+		void onDropped();
+	}
+
+	/**
+	 * Interface implemented by the container the work is scheduled for
+	 */
+	interface Host {
+		int getFirstAttachedPosition();
+		int getLastAttachedPosition();
+		boolean isScrolling();
+
+		/**
+		 * Posts the runnable to run on the next frame
+		 * @param runnable
+		 */
+		void postOnFrame(Runnable runnable);
+	}
+
+	private class Entry implements Runnable {
+		final Object key;
+		final Task task;
+		int adapterIndex;
+
+		// Written on the UI thread, read by the decoding thread to skip work cancelled before it started
+		volatile boolean cancelled;
+
+		// Whether the work has been handed to the executor and onDecoded has not run yet, read and written on the UI thread only
+		boolean running;
+
+		Entry(Object key, int adapterIndex, Task task) {
+			this.key = key;
+			this.adapterIndex = adapterIndex;
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			boolean succeeded = false;
+			if (!cancelled) {
+				try {
+					task.decode();
+					succeeded = true;
+				} catch (RuntimeException e) {
+					succeeded = false;
+				}
+			}
+			final boolean decoded = succeeded;
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					onDecoded(Entry.this, decoded);
+				}
+			});
+		}
+	}
+}
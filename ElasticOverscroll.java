@@ -0,0 +1,206 @@
+package com.qqcomic.widget;
+
+/**
+ * Elastic overscroll of ScrollReaderListView past either end of its content.
+ * Pulling past an end stretches the content by a resisted distance, the further it is pulled the harder it gets, and it
+ * springs back on release with a critically damped spring stepped on the frame clock. A fling running into an end is
+ * absorbed into the spring. Releasing a pull beyond the threshold, or a fling carrying beyond it, reports the end as reached,
+ * e.g. to load the adjacent chapter.
+ * The offset is in screen pixels, positive when the header is pulled down, so the stretch is the same at any zoom.
+ * Every call costs O(1)
+ * Created for ScrollReaderListView.
+ */
+class ElasticOverscroll {
+
+	// Defines the spring's natural frequency in radians per second, it settles in about half a second
+	private static final float SPRING_FREQUENCY = 14f;
+
+	// Defines when the spring is considered at rest, in pixels and pixels per second
+	private static final float REST_OFFSET = 0.5f;
+	private static final float REST_VELOCITY = 20f;
+
+	// Defines the longest step taken at once, so a dropped frame does not make the spring jump
+	private static final float MAX_STEP_SECONDS = 0.05f;
+
+	private final Host mHost;
+
+	private float mMaxDistance;
+	private float mThreshold;
+
+	private float mOffset;
+	private float mVelocity;
+
+	private boolean mAnimating;
+	private long mLastFrameTime;
+
+	// Whether the threshold has been reported for the current stretch, it is reported once until the content is back at rest
+	private boolean mReported;
+
+	ElasticOverscroll(Host host, float maxDistance, float threshold) {
+		mHost = host;
+		mMaxDistance = maxDistance;
+		mThreshold = threshold;
+	}
+
+	void setMaxDistance(float maxDistance) {
+		mMaxDistance = maxDistance;
+	}
+
+	void setThreshold(float threshold) {
+		mThreshold = threshold;
+	}
+
+	float getThreshold() {
+		return mThreshold;
+	}
+
+	float getOffset() {
+		return mOffset;
+	}
+
+	boolean isStretched() {
+		return mOffset != 0;
+	}
+
+	boolean isAnimating() {
+		return mAnimating;
+	}
+
+	/**
+	 * Stretches the content further past an end, the resistance grows with the stretch up to the maximum distance
+	 * @param delta positive to pull the header down, negative to pull the footer up
+	 */
+	void pull(float delta) {
+		mAnimating = false;
+		mVelocity = 0;
+		float resistance = 1 - Math.min(1, Math.abs(mOffset) / mMaxDistance);
+		setOffset(clamp(mOffset + delta * resistance));
+	}
+
+	/**
+	 * Takes back the stretch first when the content is moved towards its end
+	 * @param delta positive to move the content down
+	 * @return the part of the delta applied to the stretch, the rest scrolls the content
+	 */
+	float relax(float delta) {
+		if (mOffset == 0 || (mOffset > 0) == (delta > 0)) {
+			return 0;
+		}
+		float applied = Math.abs(delta) < Math.abs(mOffset) ? delta : -mOffset;
+		mAnimating = false;
+		mVelocity = 0;
+		setOffset(mOffset + applied);
+		if (mOffset == 0) {
+			mReported = false;
+		}
+		return applied;
+	}
+
+	/**
+	 * Stops the spring so a finger can take hold of the content where it is
+	 */
+	void hold() {
+		mAnimating = false;
+		mVelocity = 0;
+	}
+
+	/**
+	 * Releases a pull, reports the end if the stretch is beyond the threshold and springs back
+	 * @param frameTime
+	 */
+	void release(long frameTime) {
+		if (mOffset == 0) {
+			return;
+		}
+		if (!mReported && Math.abs(mOffset) >= mThreshold) {
+			mReported = true;
+			mHost.onThresholdReleased(mOffset > 0);
+		}
+		startSpring(frameTime);
+	}
+
+	/**
+	 * Absorbs a fling running into an end, the content carries on past it and springs back
+	 * @param velocity in pixels per second, positive when running into the header
+	 * @param frameTime
+	 */
+	void absorb(float velocity, long frameTime) {
+		mVelocity = velocity;
+		startSpring(frameTime);
+	}
+
+	/**
+	 * Steps the spring to the given frame time
+	 * @param frameTime
+	 * @return whether the spring is still moving
+	 */
+	boolean step(long frameTime) {
+		if (!mAnimating) {
+			return false;
+		}
+		float dt = Math.max(0, Math.min(MAX_STEP_SECONDS, (frameTime - mLastFrameTime) / 1000f));
+		mLastFrameTime = frameTime;
+
+		// The exact critically damped motion over dt, x = (x0 + (v0 + w x0) t) e^(-w t)
+		float decay = (float) Math.exp(-SPRING_FREQUENCY * dt);
+		float b = mVelocity + SPRING_FREQUENCY * mOffset;
+		float offset = (mOffset + b * dt) * decay;
+		mVelocity = (mVelocity - SPRING_FREQUENCY * b * dt) * decay;
+		if (Math.abs(offset) >= mMaxDistance) {
+			mVelocity = 0;
+		}
+		offset = clamp(offset);
+
+		if (!mReported && Math.abs(offset) >= mThreshold) {
+			mReported = true;
+			mHost.onThresholdReleased(offset > 0);
+		}
+		if (Math.abs(offset) < REST_OFFSET && Math.abs(mVelocity) < REST_VELOCITY) {
+			offset = 0;
+			mVelocity = 0;
+			mAnimating = false;
+			mReported = false;
+		}
+		setOffset(offset);
+		return mAnimating;
+	}
+
+	/**
+	 * Drops the stretch at once
+	 */
+	void reset() {
+		mAnimating = false;
+		mVelocity = 0;
+		mReported = false;
+		setOffset(0);
+	}
+
+	private void startSpring(long frameTime) {
+		mAnimating = true;
+		mLastFrameTime = frameTime;
+	}
+
+	private float clamp(float offset) {
+		return Math.max(-mMaxDistance, Math.min(mMaxDistance, offset));
+	}
+
+	private void setOffset(float offset) {
+		if (offset != mOffset) {
+			mOffset = offset;
+			mHost.onOverscrollChanged(offset);
+		}
+	}
+
+	/**
+	 * Interface implemented by the container being overscrolled
+	 */
+	interface Host {
+		void onOverscrollChanged(float offset);
+
+		/**
+		 * Called once per stretch when it goes beyond the threshold and is released, or when a fling carries it beyond
+		 * @param header whether the header end has been reached, otherwise the footer
+		 */
+		void onThresholdReleased(boolean header);
+	}
+}
@@ -0,0 +1,296 @@
+package com.qqcomic.widget;
+
+import com.qqcomic.entity.ComicSectionPicInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads the dimensions of local comic images from their headers only (JPEG SOF, PNG IHDR, WebP VP8/VP8L/VP8X),
+ * probing a whole chapter in parallel on a fork-join pool. Used to fill the dstHeight that
+ * {@link ScrollReaderListView} lays out with, without decoding any image
+ */
+public class ImageHeaderProber {
+
+	// The value reported for a dimension that could not be read
+	public static final int UNKNOWN_SIZE = -1;
+
+	// Defines how many files a single fork-join task probes before it stops splitting
+	private static final int FILES_PER_TASK = 8;
+
+	// Large enough for every fixed header we parse and for a JPEG segment header
+	private static final int HEADER_BUFFER_SIZE = 32;
+
+	// Gives up scanning a JPEG after this many segments, a SOF marker always comes far earlier
+	private static final int MAX_JPEG_SEGMENTS = 64;
+
+	private static ForkJoinPool sDefaultPool;
+
+	private final ForkJoinPool mPool;
+
+	public ImageHeaderProber() {
+		this(getDefaultPool());
+	}
+
+	public ImageHeaderProber(ForkJoinPool pool) {
+		mPool = pool;
+	}
+
+	private static synchronized ForkJoinPool getDefaultPool() {
+		if (sDefaultPool == null) {
+			sDefaultPool = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+		}
+		return sDefaultPool;
+	}
+
+	/**
+	 * Probes the dimensions of every file in parallel, blocking until all are read.
+	 * A file that is missing or not a supported image reports {@link #UNKNOWN_SIZE}
+	 * @param files
+	 * @param outWidths
+	 * @param outHeights
+	 */
+	public void probe(File[] files, int[] outWidths, int[] outHeights) {
+		if (outWidths.length < files.length || outHeights.length < files.length) {
+			throw new IllegalArgumentException("output arrays are shorter than the files: " + files.length);
+		}
+		mPool.invoke(new ProbeTask(files, outWidths, outHeights, 0, files.length));
+	}
+
+	/**
+	 * Probes the dimensions of every file in parallel and fills the dstHeight of the matching item,
+	 * scaled to the width the items are displayed at. Items whose file cannot be read keep their dstHeight,
+	 * so the container lays them out at its placeholder height
+	 * @param files
+	 * @param picInfos
+	 * @param dstWidth
+	 * @return the number of items whose dstHeight was filled
+	 */
+	public int fillHeights(File[] files, ComicSectionPicInfo[] picInfos, int dstWidth) {
+		int count = files.length;
+		int[] widths = new int[count];
+		int[] heights = new int[count];
+		probe(files, widths, heights);
+
+		int filled = 0;
+		for (int i = 0; i < count; i++) {
+			if (widths[i] > 0 && heights[i] > 0) {
+				picInfos[i].dstHeight = (int) ((long) heights[i] * dstWidth / widths[i]);
+				filled++;
+			}
+		}
+		return filled;
+	}
+
+	/**
+	 * Probes a contiguous range of files, splitting it while it is larger than {@link #FILES_PER_TASK}
+	 */
+	private static class ProbeTask extends RecursiveAction {
+
+		private final File[] mFiles;
+		private final int[] mWidths;
+		private final int[] mHeights;
+		private final int mStart;
+		private final int mEnd;
+
+		ProbeTask(File[] files, int[] widths, int[] heights, int start, int end) {
+			mFiles = files;
+			mWidths = widths;
+			mHeights = heights;
+			mStart = start;
+			mEnd = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (mEnd - mStart > FILES_PER_TASK) {
+				int middle = (mStart + mEnd) >>> 1;
+				invokeAll(new ProbeTask(mFiles, mWidths, mHeights, mStart, middle),
+						new ProbeTask(mFiles, mWidths, mHeights, middle, mEnd));
+				return;
+			}
+
+			// One buffer is shared by every file of this leaf task
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_BUFFER_SIZE);
+			int[] size = new int[2];
+			for (int i = mStart; i < mEnd; i++) {
+				size[0] = UNKNOWN_SIZE;
+				size[1] = UNKNOWN_SIZE;
+				readSize(mFiles[i], buffer, size);
+				mWidths[i] = size[0];
+				mHeights[i] = size[1];
+			}
+		}
+	}
+
+	/**
+	 * Reads the width and height of a single image file from its header
+	 * @param file
+	 * @param buffer
+	 * @param outSize width at index 0, height at index 1
+	 * @return whether the size has been read
+	 */
+	static boolean readSize(File file, ByteBuffer buffer, int[] outSize) {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			return readSize(raf.getChannel(), buffer, outSize);
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	static boolean readSize(FileChannel channel, ByteBuffer buffer, int[] outSize) throws IOException {
+		if (read(channel, buffer, 0, 30) < 12) {
+			return false;
+		}
+		int b0 = buffer.get(0) & 0xff;
+		int b1 = buffer.get(1) & 0xff;
+
+		if (b0 == 0xff && b1 == 0xd8) {
+			return readJpegSize(channel, buffer, outSize);
+		}
+		if (b0 == 0x89 && b1 == 'P' && buffer.get(2) == 'N' && buffer.get(3) == 'G') {
+			return readPngSize(buffer, outSize);
+		}
+		if (b0 == 'R' && b1 == 'I' && buffer.get(2) == 'F' && buffer.get(3) == 'F'
+				&& buffer.get(8) == 'W' && buffer.get(9) == 'E' && buffer.get(10) == 'B' && buffer.get(11) == 'P') {
+			return readWebpSize(buffer, outSize);
+		}
+		return false;
+	}
+
+	/**
+	 * PNG: the IHDR chunk always comes first, width and height are big endian at offset 16 and 20
+	 */
+	private static boolean readPngSize(ByteBuffer buffer, int[] outSize) {
+		if (buffer.limit() < 24 || buffer.get(12) != 'I' || buffer.get(13) != 'H' || buffer.get(14) != 'D' || buffer.get(15) != 'R') {
+			return false;
+		}
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		outSize[0] = buffer.getInt(16);
+		outSize[1] = buffer.getInt(20);
+		return outSize[0] > 0 && outSize[1] > 0;
+	}
+
+	/**
+	 * WebP: the first chunk is either lossy (VP8), lossless (VP8L) or extended (VP8X)
+	 */
+	private static boolean readWebpSize(ByteBuffer buffer, int[] outSize) {
+		if (buffer.limit() < 30 || buffer.get(12) != 'V' || buffer.get(13) != 'P' || buffer.get(14) != '8') {
+			return false;
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		byte format = buffer.get(15);
+		if (format == ' ') {
+			// Lossy: 3 bytes frame tag, 3 bytes start code 9d 01 2a, then 14 bits width and height
+			if ((buffer.get(23) & 0xff) != 0x9d || (buffer.get(24) & 0xff) != 0x01 || (buffer.get(25) & 0xff) != 0x2a) {
+				return false;
+			}
+			outSize[0] = buffer.getShort(26) & 0x3fff;
+			outSize[1] = buffer.getShort(28) & 0x3fff;
+		} else if (format == 'L') {
+			// Lossless: signature 0x2f, then 14 bits width - 1 and 14 bits height - 1
+			if ((buffer.get(20) & 0xff) != 0x2f) {
+				return false;
+			}
+			int bits = buffer.getInt(21);
+			outSize[0] = (bits & 0x3fff) + 1;
+			outSize[1] = ((bits >>> 14) & 0x3fff) + 1;
+		} else if (format == 'X') {
+			// Extended: 24 bits canvas width - 1 and height - 1 after 4 bytes of flags
+			outSize[0] = readUInt24(buffer, 24) + 1;
+			outSize[1] = readUInt24(buffer, 27) + 1;
+		} else {
+			return false;
+		}
+		return outSize[0] > 0 && outSize[1] > 0;
+	}
+
+	/**
+	 * JPEG: walks the segment headers with positional reads until the start of frame marker
+	 */
+	private static boolean readJpegSize(FileChannel channel, ByteBuffer buffer, int[] outSize) throws IOException {
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		long position = 2;
+		for (int segment = 0; segment < MAX_JPEG_SEGMENTS; segment++) {
+			if (read(channel, buffer, position, 9) < 4) {
+				return false;
+			}
+			if ((buffer.get(0) & 0xff) != 0xff) {
+				return false;
+			}
+			int marker = buffer.get(1) & 0xff;
+
+			// Fill bytes before a marker
+			if (marker == 0xff) {
+				position++;
+				continue;
+			}
+			// Markers without a length
+			if (marker == 0x01 || (marker >= 0xd0 && marker <= 0xd8)) {
+				position += 2;
+				continue;
+			}
+			// End of image or start of scan before any frame header
+			if (marker == 0xd9 || marker == 0xda) {
+				return false;
+			}
+
+			int length = buffer.getShort(2) & 0xffff;
+			if (isStartOfFrame(marker)) {
+				if (buffer.limit() < 9) {
+					return false;
+				}
+				outSize[1] = buffer.getShort(5) & 0xffff;
+				outSize[0] = buffer.getShort(7) & 0xffff;
+				return outSize[0] > 0 && outSize[1] > 0;
+			}
+			if (length < 2) {
+				return false;
+			}
+			position += 2 + length;
+		}
+		return false;
+	}
+
+	private static boolean isStartOfFrame(int marker) {
+		return marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc;
+	}
+
+	private static int readUInt24(ByteBuffer buffer, int index) {
+		return (buffer.get(index) & 0xff) | (buffer.get(index + 1) & 0xff) << 8 | (buffer.get(index + 2) & 0xff) << 16;
+	}
+
+	/**
+	 * Reads up to {@code length} bytes at the given file position into the start of the buffer
+	 * @return the number of bytes read, the buffer's limit is set accordingly
+	 */
+	private static int read(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+		buffer.clear();
+		buffer.limit(Math.min(length, buffer.capacity()));
+		int total = 0;
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, position + total);
+			if (count < 0) {
+				break;
+			}
+			total += count;
+		}
+		buffer.flip();
+		return total;
+	}
+}
@@ -0,0 +1,131 @@
+package com.qqcomic.widget;
+
+/**
+ * Indexed height model used to comic scroll mode.
+ * Holds the vertical extent (item height plus divider) of every adapter item in a binary indexed tree,
+ * so the offset of any item, the item at any offset and a single height update all cost O(log n)
+ * Created for ScrollReaderListView.
+ */
+class ItemHeightIndex {
+
+	// The extent of each item
+	private int[] mExtents = new int[0];
+
+	// Binary indexed tree over mExtents, 1-based
+	private long[] mTree = new long[1];
+
+	private int mCount;
+
+	// The largest power of two not above mCount, used to walk the tree when searching by offset
+	private int mTopBit;
+
+	/**
+	 * Resizes the index to hold the given number of items, all extents are cleared
+	 * @param count
+	 */
+	void reset(int count) {
+		if (mExtents.length < count) {
+			mExtents = new int[count];
+			mTree = new long[count + 1];
+		} else {
+			for (int i = 0; i < count; i++) {
+				mExtents[i] = 0;
+			}
+			for (int i = 0; i <= count; i++) {
+				mTree[i] = 0;
+			}
+		}
+		mCount = count;
+		mTopBit = Integer.highestOneBit(Math.max(count, 1));
+	}
+
+	/**
+	 * Sets the extent of an item while building the index; {@link #build()} must be called once every extent is loaded
+	 * @param index
+	 * @param extent
+	 */
+	void load(int index, int extent) {
+		mExtents[index] = extent;
+	}
+
+	/**
+	 * Builds the tree from the loaded extents in O(n)
+	 */
+	void build() {
+		for (int i = 1; i <= mCount; i++) {
+			mTree[i] = mExtents[i - 1];
+		}
+		for (int i = 1; i <= mCount; i++) {
+			int parent = i + (i & -i);
+			if (parent <= mCount) {
+				mTree[parent] += mTree[i];
+			}
+		}
+	}
+
+	int getCount() {
+		return mCount;
+	}
+
+	int get(int index) {
+		return mExtents[index];
+	}
+
+	/**
+	 * Updates the extent of a single item
+	 * @param index
+	 * @param extent
+	 * @return the difference between the new and the old extent
+	 */
+	int set(int index, int extent) {
+		int delta = extent - mExtents[index];
+		if (delta != 0) {
+			mExtents[index] = extent;
+			for (int i = index + 1; i <= mCount; i += i & -i) {
+				mTree[i] += delta;
+			}
+		}
+		return delta;
+	}
+
+	/**
+	 * Gets the sum of the extents of the items before the given index, which is the offset of that item
+	 * @param end
+	 * @return
+	 */
+	long offsetOf(int end) {
+		long sum = 0;
+		for (int i = Math.min(end, mCount); i > 0; i -= i & -i) {
+			sum += mTree[i];
+		}
+		return sum;
+	}
+
+	long total() {
+		return offsetOf(mCount);
+	}
+
+	/**
+	 * Finds the item which covers the given offset, clamped to the valid index range
+	 * @param offset
+	 * @return
+	 */
+	int indexAt(long offset) {
+		if (mCount == 0) {
+			return -1;
+		}
+		if (offset < 0) {
+			return 0;
+		}
+		int pos = 0;
+		long remaining = offset;
+		for (int bit = mTopBit; bit != 0; bit >>= 1) {
+			int next = pos + bit;
+			if (next <= mCount && mTree[next] <= remaining) {
+				pos = next;
+				remaining -= mTree[next];
+			}
+		}
+		return Math.min(pos, mCount - 1);
+	}
+}
@@ -0,0 +1,232 @@
+package com.qqcomic.widget;
+
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+/**
+ * Exposes the items of ScrollReaderListView to accessibility services as virtual views, whose ids are the adapter indices.
+ * Only the visible items and one item beyond either end are children of the container's node, so creating it costs the same
+ * however long the chapter is. The node of any item is built from the indexed heights, never from a bound view, so a service
+ * moving on to an offscreen item does not bind it; the item is scrolled into view once it takes the accessibility focus
+ * Created for ScrollReaderListView.
+ */
+class ReaderAccessibilityProvider extends AccessibilityNodeProvider {
+
+	// Defines the id of no item, the host's own id being -1
+	private static final int NO_ITEM = Integer.MIN_VALUE;
+
+	// Defines how many items beyond either end of the visible range are exposed, so traversal can move on to them
+	private static final int TRAVERSAL_MARGIN = 1;
+
+	private final View mView;
+	private final Host mHost;
+
+	private final Rect mTempRect = new Rect();
+	private final int[] mTempLocation = new int[2];
+
+	private int mFocusedIndex = NO_ITEM;
+	private int mHoveredIndex = NO_ITEM;
+
+	ReaderAccessibilityProvider(View view, Host host) {
+		mView = view;
+		mHost = host;
+	}
+
+	@Override
+	public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+		if (virtualViewId == HOST_VIEW_ID) {
+			AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain(mView);
+			mView.onInitializeAccessibilityNodeInfo(node);
+			int first = mHost.getFirstVisibleIndex();
+			if (first >= 0) {
+				int end = Math.min(mHost.getItemCount(), mHost.getLastVisibleIndex() + TRAVERSAL_MARGIN + 1);
+				for (int i = Math.max(0, first - TRAVERSAL_MARGIN); i < end; i++) {
+					node.addChild(mView, i);
+				}
+			}
+			return node;
+		}
+		if (virtualViewId < 0 || virtualViewId >= mHost.getItemCount()) {
+			return null;
+		}
+
+		AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain();
+		node.setSource(mView, virtualViewId);
+		node.setParent(mView);
+		node.setPackageName(mView.getContext().getPackageName());
+		node.setClassName(View.class.getName());
+		node.setContentDescription(mHost.getItemDescription(virtualViewId));
+		node.setEnabled(true);
+
+		boolean visible = mHost.getItemBounds(virtualViewId, mTempRect);
+		node.setVisibleToUser(visible);
+		node.setBoundsInParent(mTempRect);
+		mView.getLocationOnScreen(mTempLocation);
+		mTempRect.offset(mTempLocation[0], mTempLocation[1]);
+		node.setBoundsInScreen(mTempRect);
+
+		if (virtualViewId == mFocusedIndex) {
+			node.setAccessibilityFocused(true);
+			node.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+		} else {
+			node.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+		}
+		return node;
+	}
+
+	@Override
+	public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+		if (virtualViewId == HOST_VIEW_ID) {
+			return mView.performAccessibilityAction(action, arguments);
+		}
+		switch (action) {
+			case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+				if (virtualViewId == mFocusedIndex || virtualViewId < 0 || virtualViewId >= mHost.getItemCount()) {
+					return false;
+				}
+				clearFocus();
+				mFocusedIndex = virtualViewId;
+				mHost.showItem(virtualViewId);
+				mView.invalidate();
+				sendEventForItem(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+				return true;
+			case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+				if (virtualViewId != mFocusedIndex) {
+					return false;
+				}
+				clearFocus();
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public AccessibilityNodeInfo findFocus(int focus) {
+		if (focus == AccessibilityNodeInfo.FOCUS_ACCESSIBILITY && mFocusedIndex != NO_ITEM) {
+			return createAccessibilityNodeInfo(mFocusedIndex);
+		}
+		return null;
+	}
+
+	/**
+	 * Reports the item under the pointer as hovered while touch exploration is on
+	 * @param event
+	 * @return whether the pointer is over an item
+	 */
+	boolean onHover(MotionEvent event) {
+		int index = NO_ITEM;
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_HOVER_ENTER:
+			case MotionEvent.ACTION_HOVER_MOVE:
+				index = mHost.getItemAt(event.getX(), event.getY());
+				if (index < 0) {
+					index = NO_ITEM;
+				}
+				break;
+			case MotionEvent.ACTION_HOVER_EXIT:
+				break;
+			default:
+				return false;
+		}
+		if (index != mHoveredIndex) {
+			int previous = mHoveredIndex;
+			mHoveredIndex = index;
+			if (index != NO_ITEM) {
+				sendEventForItem(index, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+			}
+			if (previous != NO_ITEM) {
+				sendEventForItem(previous, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+			}
+		}
+		return index != NO_ITEM;
+	}
+
+	/**
+	 * Shifts the focused and hovered items along with the adapter indices, when items are inserted into or removed from
+	 * the front of the adapter
+	 * @param itemDelta
+	 */
+	void shiftItems(int itemDelta) {
+		if (mFocusedIndex != NO_ITEM) {
+			mFocusedIndex = Math.max(0, mFocusedIndex + itemDelta);
+		}
+		if (mHoveredIndex != NO_ITEM) {
+			mHoveredIndex = Math.max(0, mHoveredIndex + itemDelta);
+		}
+	}
+
+	/**
+	 * Forgets the focused and hovered items, e.g. when the adapter is replaced
+	 */
+	void reset() {
+		mFocusedIndex = NO_ITEM;
+		mHoveredIndex = NO_ITEM;
+	}
+
+	private void clearFocus() {
+		if (mFocusedIndex == NO_ITEM) {
+			return;
+		}
+		int previous = mFocusedIndex;
+		mFocusedIndex = NO_ITEM;
+		mView.invalidate();
+		sendEventForItem(previous, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+	}
+
+	private void sendEventForItem(int index, int eventType) {
+		ViewParent parent = mView.getParent();
+		if (parent == null || index < 0 || index >= mHost.getItemCount()) {
+			return;
+		}
+		AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+		event.setPackageName(mView.getContext().getPackageName());
+		event.setClassName(View.class.getName());
+		event.setSource(mView, index);
+		event.getText().add(mHost.getItemDescription(index));
+		parent.requestSendAccessibilityEvent(mView, event);
+	}
+
+	/**
+	 * Interface implemented by the container whose items are exposed
+	 */
+	interface Host {
+		int getItemCount();
+
+		/**
+		 * @return the adapter index of the first visible item, or -1 if none
+		 */
+		int getFirstVisibleIndex();
+
+		int getLastVisibleIndex();
+
+		/**
+		 * Gets where an item is on the screen, relative to the container, whether it is attached or not
+		 * @param index
+		 * @param bounds
+		 * @return whether the item is visible
+		 */
+		boolean getItemBounds(int index, Rect bounds);
+
+		/**
+		 * @param x
+		 * @param y
+		 * @return the adapter index of the item at the given point, or -1 if none
+		 */
+		int getItemAt(float x, float y);
+
+		CharSequence getItemDescription(int index);
+
+		/**
+		 * Scrolls the item into view if it is not visible
+		 * @param index
+		 */
+		void showItem(int index);
+	}
+}
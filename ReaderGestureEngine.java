@@ -0,0 +1,634 @@
+package com.qqcomic.widget;
+
+/**
+ * Turns touch samples into a single transform of {@link ScrollReaderListView}'s content: the zoom scale,
+ * the horizontal and vertical translation of the zoomed viewport, and the vertical scroll of the list.
+ * Pan, pinch and fling all go through the same two operations, panning and scaling about a focal point, so
+ * panning while pinching and flinging in two dimensions while zoomed fall out of the model.
+ * Vertical movement scrolls the list first, the part the list cannot consume moves the zoomed viewport, and the part
+ * neither can consume is reported as overscroll.
+ * Samples are passed as primitives rather than MotionEvents, so a recorded event stream can be replayed off device.
+ * When resampling is enabled a pan is not applied per sample but once per frame, at the finger position interpolated
+ * to slightly before the frame time, so the content moves evenly however the input and display rates beat
+ */
+public class ReaderGestureEngine {
+
+	// Defines what the current gesture does
+	private static final int MODE_NONE = 0;
+	private static final int MODE_PAN = 1;
+	private static final int MODE_PINCH = 2;
+
+	// Defines how many recent samples are kept to compute the release velocity, and how far back they may go
+	private static final int VELOCITY_SAMPLE_COUNT = 8;
+	private static final long VELOCITY_WINDOW_MS = 100;
+
+	// Defines how far before the frame time the finger position is resampled, and how far past the newest sample it may be predicted
+	private static final long RESAMPLE_LATENCY_MS = 5;
+	private static final long MAX_PREDICTION_MS = 8;
+
+	// Defines how fast a fling decays, per second, and the velocity it stops below in pixels per second
+	private static final float FLING_DECAY_RATE = 3f;
+	private static final float MIN_FLING_VELOCITY = 50f;
+
+	private final Host mHost;
+
+	private int mWidth;
+	private int mHeight;
+
+	private float mMinScale = 1f;
+	private float mMaxScale = 1f;
+	private float mTouchSlop;
+	private float mMinPinchSpan;
+	private float mMaxVelocity = Float.MAX_VALUE;
+
+	private float mScale = 1f;
+	private float mTranslateX;
+	private float mTranslateY;
+
+	private int mMode = MODE_NONE;
+	private boolean mDragging = false;
+
+	private float mDownX;
+	private float mDownY;
+
+	// The focal point and the distance between the fingers at the last sample
+	private float mLastFocusX;
+	private float mLastFocusY;
+	private float mLastSpan;
+
+	// Whether the last pan could not be consumed vertically
+	private boolean mVerticalBlocked;
+
+	// Recent samples of the focal point, in a ring
+	private final long[] mSampleTimes = new long[VELOCITY_SAMPLE_COUNT];
+	private final float[] mSampleX = new float[VELOCITY_SAMPLE_COUNT];
+	private final float[] mSampleY = new float[VELOCITY_SAMPLE_COUNT];
+	private final float[] mSampleLogScale = new float[VELOCITY_SAMPLE_COUNT];
+	private int mSampleCount;
+	private int mSampleHead;
+
+	private float mVelocityX;
+	private float mVelocityY;
+
+	// The release velocity of the last pinch in natural log of the scale per second, and its focal point when released
+	private float mScaleVelocity;
+	private float mPinchFocusX;
+	private float mPinchFocusY;
+
+	// Whether pans are applied once per frame at a resampled position, and whether samples are waiting to be applied
+	private boolean mResampling = false;
+	private boolean mPendingResample = false;
+
+	private final LatencyStats mLatencyStats = new LatencyStats();
+
+	private boolean mFlinging = false;
+	private long mLastFlingTime;
+
+	ReaderGestureEngine(Host host) {
+		mHost = host;
+	}
+
+	/**
+	 * Sets the size of the viewport the content is zoomed within
+	 * @param width
+	 * @param height
+	 */
+	public void setViewportSize(int width, int height) {
+		mWidth = width;
+		mHeight = height;
+	}
+
+	public void setScaleRange(float minScale, float maxScale) {
+		mMinScale = minScale;
+		mMaxScale = maxScale;
+	}
+
+	/**
+	 * Sets the distance a finger must move before a pan starts
+	 * @param touchSlop
+	 */
+	public void setTouchSlop(float touchSlop) {
+		mTouchSlop = touchSlop;
+	}
+
+	/**
+	 * Sets the distance between two fingers below which they are not taken as a pinch
+	 * @param minPinchSpan
+	 */
+	public void setMinPinchSpan(float minPinchSpan) {
+		mMinPinchSpan = minPinchSpan;
+	}
+
+	/**
+	 * Sets the max release velocity, in pixels per second
+	 * @param maxVelocity
+	 */
+	public void setMaxVelocity(float maxVelocity) {
+		mMaxVelocity = maxVelocity;
+	}
+
+	/**
+	 * Sets the transform, when it has been changed outside the engine, without notifying the host
+	 * @param scale
+	 * @param translateX
+	 * @param translateY
+	 */
+	public void setTransform(float scale, float translateX, float translateY) {
+		mScale = scale;
+		mTranslateX = translateX;
+		mTranslateY = translateY;
+	}
+
+	/**
+	 * Enables resampling, see {@link #onFrame(long)}
+	 * @param resampling
+	 */
+	public void setResamplingEnabled(boolean resampling) {
+		flushResample();
+		mResampling = resampling;
+	}
+
+	public boolean isResamplingEnabled() {
+		return mResampling;
+	}
+
+	/**
+	 * Whether samples are waiting for {@link #onFrame(long)} to be applied
+	 * @return
+	 */
+	public boolean hasPendingResample() {
+		return mPendingResample;
+	}
+
+	/**
+	 * Gets the delay between the input samples and the frames they are applied in
+	 * @return
+	 */
+	public LatencyStats getLatencyStats() {
+		return mLatencyStats;
+	}
+
+	public float getScale() {
+		return mScale;
+	}
+
+	public float getTranslateX() {
+		return mTranslateX;
+	}
+
+	public float getTranslateY() {
+		return mTranslateY;
+	}
+
+	/**
+	 * Whether the current gesture has moved past the touch slop, or is a pinch
+	 * @return
+	 */
+	public boolean isDragging() {
+		return mDragging || mMode == MODE_PINCH;
+	}
+
+	public boolean isPinching() {
+		return mMode == MODE_PINCH;
+	}
+
+	/**
+	 * Gets the release velocity of the last gesture, in pixels per second
+	 * @return
+	 */
+	public float getVelocityX() {
+		return mVelocityX;
+	}
+
+	public float getVelocityY() {
+		return mVelocityY;
+	}
+
+	/**
+	 * Gets the release velocity of the last pinch, in natural log of the scale per second so it is the same at any zoom
+	 * @return
+	 */
+	public float getScaleVelocity() {
+		return mScaleVelocity;
+	}
+
+	public float getPinchFocusX() {
+		return mPinchFocusX;
+	}
+
+	public float getPinchFocusY() {
+		return mPinchFocusY;
+	}
+
+	public void onDown(long time, float x, float y) {
+		stopFling();
+		mMode = MODE_PAN;
+		mDragging = false;
+		mDownX = x;
+		mDownY = y;
+		mLastFocusX = x;
+		mLastFocusY = y;
+		mVelocityX = 0;
+		mVelocityY = 0;
+		mScaleVelocity = 0;
+		clearSamples();
+		addSample(time, x, y);
+	}
+
+	/**
+	 * Called when a second finger goes down, starts a pinch if the fingers are far enough apart
+	 */
+	public void onPointerDown(long time, float x0, float y0, float x1, float y1) {
+		flushResample();
+		float span = span(x0, y0, x1, y1);
+		if (span > mMinPinchSpan) {
+			mMode = MODE_PINCH;
+			mLastSpan = span;
+			mLastFocusX = (x0 + x1) / 2;
+			mLastFocusY = (y0 + y1) / 2;
+			clearSamples();
+		}
+	}
+
+	/**
+	 * Called for every sample of a move, historical samples included, in order
+	 * @param time
+	 * @param pointerCount
+	 * @param x0
+	 * @param y0
+	 * @param x1 ignored unless pointerCount is at least 2
+	 * @param y1 ignored unless pointerCount is at least 2
+	 */
+	public void onMove(long time, int pointerCount, float x0, float y0, float x1, float y1) {
+		if (mMode == MODE_PINCH && pointerCount >= 2) {
+			float span = span(x0, y0, x1, y1);
+			float focusX = (x0 + x1) / 2;
+			float focusY = (y0 + y1) / 2;
+			if (span > mMinPinchSpan) {
+				scaleBy(span / mLastSpan, focusX, focusY);
+				mLastSpan = span;
+			}
+			pan(focusX - mLastFocusX, focusY - mLastFocusY);
+			mLastFocusX = focusX;
+			mLastFocusY = focusY;
+			addSample(time, focusX, focusY);
+		} else if (mMode == MODE_PAN) {
+			if (!mDragging && (Math.abs(x0 - mDownX) > mTouchSlop || Math.abs(y0 - mDownY) > mTouchSlop)) {
+				mDragging = true;
+			}
+			addSample(time, x0, y0);
+			if (mDragging && mResampling) {
+				// The last focal point stays the position applied, the pan is applied on the next frame
+				mPendingResample = true;
+				return;
+			}
+			if (mDragging) {
+				pan(x0 - mLastFocusX, y0 - mLastFocusY);
+			}
+			mLastFocusX = x0;
+			mLastFocusY = y0;
+		}
+	}
+
+	/**
+	 * Called when one of two fingers goes up, the remaining finger keeps panning
+	 */
+	public void onPointerUp(long time, float remainingX, float remainingY) {
+		flushResample();
+		if (mMode == MODE_PINCH) {
+			endPinch();
+			mMode = MODE_PAN;
+			mDragging = true;
+		}
+		mLastFocusX = remainingX;
+		mLastFocusY = remainingY;
+		// The focal point jumps to the remaining finger, which must not show up as velocity
+		clearSamples();
+		addSample(time, remainingX, remainingY);
+	}
+
+	/**
+	 * Called when the last finger goes up, computes the release velocity
+	 */
+	public void onUp(long time) {
+		// The content ends exactly where the finger was lifted
+		flushResample();
+		if (mMode == MODE_PINCH) {
+			endPinch();
+		}
+		computeVelocity();
+		mMode = MODE_NONE;
+		mDragging = false;
+	}
+
+	/**
+	 * Keeps the scale velocity and the focal point of the pinch being released, so it can carry on as a zoom fling
+	 */
+	private void endPinch() {
+		computeVelocity();
+		mPinchFocusX = mLastFocusX;
+		mPinchFocusY = mLastFocusY;
+	}
+
+	public void onCancel() {
+		if (mMode == MODE_PINCH) {
+			mPinchFocusX = mLastFocusX;
+			mPinchFocusY = mLastFocusY;
+		}
+		mPendingResample = false;
+		mMode = MODE_NONE;
+		mDragging = false;
+		mVelocityX = 0;
+		mVelocityY = 0;
+		mScaleVelocity = 0;
+	}
+
+	/**
+	 * Applies the pan to the finger position resampled at the given frame time, minus a small latency so it can be
+	 * interpolated between two real samples rather than predicted
+	 * @param frameTime
+	 */
+	public void onFrame(long frameTime) {
+		if (!mPendingResample || mMode != MODE_PAN || mSampleCount == 0) {
+			mPendingResample = false;
+			return;
+		}
+		int newest = (mSampleHead - 1 + VELOCITY_SAMPLE_COUNT) % VELOCITY_SAMPLE_COUNT;
+		long sampleTime = frameTime - RESAMPLE_LATENCY_MS;
+		float x;
+		float y;
+		if (sampleTime >= mSampleTimes[newest] || mSampleCount < 2) {
+			int previous = (newest - 1 + VELOCITY_SAMPLE_COUNT) % VELOCITY_SAMPLE_COUNT;
+			long interval = mSampleTimes[newest] - mSampleTimes[previous];
+			if (mSampleCount < 2 || interval <= 0) {
+				x = mSampleX[newest];
+				y = mSampleY[newest];
+			} else {
+				// Predict past the newest sample by no more than half the sampling interval
+				float alpha = (float) Math.min(sampleTime - mSampleTimes[newest], Math.min(MAX_PREDICTION_MS, interval / 2)) / interval;
+				x = mSampleX[newest] + (mSampleX[newest] - mSampleX[previous]) * alpha;
+				y = mSampleY[newest] + (mSampleY[newest] - mSampleY[previous]) * alpha;
+			}
+			mPendingResample = false;
+		} else {
+			int after = newest;
+			int before = newest;
+			for (int i = 1; i < mSampleCount; i++) {
+				before = (newest - i + VELOCITY_SAMPLE_COUNT) % VELOCITY_SAMPLE_COUNT;
+				if (mSampleTimes[before] <= sampleTime) {
+					break;
+				}
+				after = before;
+			}
+			long interval = mSampleTimes[after] - mSampleTimes[before];
+			float alpha = interval > 0 ? Math.max(0, Math.min(1, (float) (sampleTime - mSampleTimes[before]) / interval)) : 1;
+			x = mSampleX[before] + (mSampleX[after] - mSampleX[before]) * alpha;
+			y = mSampleY[before] + (mSampleY[after] - mSampleY[before]) * alpha;
+			// The rest of the samples are applied on the next frames
+		}
+		pan(x - mLastFocusX, y - mLastFocusY);
+		mLastFocusX = x;
+		mLastFocusY = y;
+		mLatencyStats.record(frameTime - mSampleTimes[newest]);
+	}
+
+	/**
+	 * Applies the newest sample right away, so nothing is lost when the gesture changes or ends
+	 */
+	private void flushResample() {
+		if (!mPendingResample) {
+			return;
+		}
+		mPendingResample = false;
+		int newest = (mSampleHead - 1 + VELOCITY_SAMPLE_COUNT) % VELOCITY_SAMPLE_COUNT;
+		pan(mSampleX[newest] - mLastFocusX, mSampleY[newest] - mLastFocusY);
+		mLastFocusX = mSampleX[newest];
+		mLastFocusY = mSampleY[newest];
+	}
+
+	/**
+	 * Starts a two dimensional fling, driven by {@link #computeFling(long)} once per frame
+	 * @param velocityX in pixels per second
+	 * @param velocityY in pixels per second
+	 * @param time
+	 */
+	public void startFling(float velocityX, float velocityY, long time) {
+		mVelocityX = velocityX;
+		mVelocityY = velocityY;
+		mLastFlingTime = time;
+		mFlinging = true;
+	}
+
+	/**
+	 * Advances the fling to the given frame time
+	 * @param time
+	 * @return whether the fling goes on
+	 */
+	public boolean computeFling(long time) {
+		if (!mFlinging) {
+			return false;
+		}
+		float elapsed = (time - mLastFlingTime) / 1000f;
+		mLastFlingTime = time;
+		if (elapsed > 0) {
+			float decay = (float) Math.exp(-FLING_DECAY_RATE * elapsed);
+			// Move by the integral of the decaying velocity over the frame
+			float distanceFactor = (1 - decay) / FLING_DECAY_RATE;
+			float dx = mVelocityX * distanceFactor;
+			float dy = mVelocityY * distanceFactor;
+			float oldTranslateX = mTranslateX;
+			pan(dx, dy);
+			if (dx != 0 && mTranslateX == oldTranslateX) {
+				mVelocityX = 0;
+			}
+			if (mVerticalBlocked) {
+				mVelocityY = 0;
+			}
+			mVelocityX *= decay;
+			mVelocityY *= decay;
+		}
+		if (Math.hypot(mVelocityX, mVelocityY) < MIN_FLING_VELOCITY) {
+			stopFling();
+		}
+		return mFlinging;
+	}
+
+	public boolean isFlinging() {
+		return mFlinging;
+	}
+
+	/**
+	 * Moves the content vertically as a scroll driven from outside the engine would, e.g. a fling of the list running into
+	 * an end while zoomed. The list scrolls first, then the zoomed viewport moves, the rest is reported as overscroll
+	 * @param dy in screen pixels
+	 */
+	public void scrollViewport(float dy) {
+		pan(0, dy);
+	}
+
+	public void stopFling() {
+		mFlinging = false;
+	}
+
+	/**
+	 * Moves the content with the finger. Horizontally the zoomed viewport moves, vertically the list scrolls first
+	 * @param dx in screen pixels
+	 * @param dy in screen pixels
+	 */
+	private void pan(float dx, float dy) {
+		float translateX = clamp(mTranslateX + dx, mWidth);
+		float translateY = mTranslateY;
+		mVerticalBlocked = false;
+		if (dy != 0) {
+			// Moving the finger down scrolls the list up, the list scrolls in unscaled pixels
+			float consumed = mHost.scrollBy(-dy / mScale);
+			float remaining = dy + consumed * mScale;
+			if (remaining != 0) {
+				translateY = clamp(mTranslateY + remaining, mHeight);
+				float overscroll = remaining - (translateY - mTranslateY);
+				if (overscroll != 0) {
+					mVerticalBlocked = true;
+					mHost.onOverscroll(-overscroll / mScale);
+				}
+			}
+		}
+		setTranslation(translateX, translateY);
+	}
+
+	/**
+	 * Scales the content about the given focal point, which stays where it is on the screen
+	 */
+	private void scaleBy(float factor, float focusX, float focusY) {
+		float scale = Math.max(mMinScale, Math.min(mMaxScale, mScale * factor));
+		factor = scale / mScale;
+		mScale = scale;
+		setTranslation(clamp(focusX - (focusX - mTranslateX) * factor, mWidth),
+				clamp(focusY - (focusY - mTranslateY) * factor, mHeight));
+	}
+
+	/**
+	 * Keeps the scaled viewport covering the screen, or within it when zoomed out
+	 * @param translate
+	 * @param size
+	 * @return
+	 */
+	private float clamp(float translate, int size) {
+		float slack = size - size * mScale;
+		return Math.max(Math.min(0, slack), Math.min(Math.max(0, slack), translate));
+	}
+
+	private void setTranslation(float translateX, float translateY) {
+		mTranslateX = translateX;
+		mTranslateY = translateY;
+		mHost.onTransformChanged(mScale, mTranslateX, mTranslateY);
+	}
+
+	private void clearSamples() {
+		mSampleCount = 0;
+		mSampleHead = 0;
+	}
+
+	private void addSample(long time, float x, float y) {
+		mSampleTimes[mSampleHead] = time;
+		mSampleX[mSampleHead] = x;
+		mSampleY[mSampleHead] = y;
+		mSampleLogScale[mSampleHead] = (float) Math.log(mScale);
+		mSampleHead = (mSampleHead + 1) % VELOCITY_SAMPLE_COUNT;
+		mSampleCount = Math.min(mSampleCount + 1, VELOCITY_SAMPLE_COUNT);
+	}
+
+	/**
+	 * Computes the velocity between the latest sample and the oldest one within the velocity window
+	 */
+	private void computeVelocity() {
+		mVelocityX = 0;
+		mVelocityY = 0;
+		mScaleVelocity = 0;
+		if (mSampleCount < 2) {
+			return;
+		}
+		int newest = (mSampleHead - 1 + VELOCITY_SAMPLE_COUNT) % VELOCITY_SAMPLE_COUNT;
+		int oldest = newest;
+		for (int i = 1; i < mSampleCount; i++) {
+			int index = (newest - i + VELOCITY_SAMPLE_COUNT) % VELOCITY_SAMPLE_COUNT;
+			if (mSampleTimes[newest] - mSampleTimes[index] > VELOCITY_WINDOW_MS) {
+				break;
+			}
+			oldest = index;
+		}
+		long duration = mSampleTimes[newest] - mSampleTimes[oldest];
+		if (duration <= 0) {
+			return;
+		}
+		mVelocityX = clampVelocity((mSampleX[newest] - mSampleX[oldest]) * 1000 / duration);
+		mVelocityY = clampVelocity((mSampleY[newest] - mSampleY[oldest]) * 1000 / duration);
+		mScaleVelocity = (mSampleLogScale[newest] - mSampleLogScale[oldest]) * 1000 / duration;
+	}
+
+	private float clampVelocity(float velocity) {
+		return Math.max(-mMaxVelocity, Math.min(mMaxVelocity, velocity));
+	}
+
+	private static float span(float x0, float y0, float x1, float y1) {
+		float dx = x0 - x1;
+		float dy = y0 - y1;
+		return (float) Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Tracks the delay between input samples and the moment they are applied, in milliseconds
+	 */
+	public static class LatencyStats {
+
+		private int mCount;
+		private long mTotal;
+		private long mMax;
+
+		public void record(long latency) {
+			mCount++;
+			mTotal += latency;
+			mMax = Math.max(mMax, latency);
+		}
+
+		public int getCount() {
+			return mCount;
+		}
+
+		public float getAverage() {
+			return mCount == 0 ? 0 : (float) mTotal / mCount;
+		}
+
+		public long getMax() {
+			return mMax;
+		}
+
+		public void reset() {
+			mCount = 0;
+			mTotal = 0;
+			mMax = 0;
+		}
+
+		@Override
+		public String toString() {
+			return "LatencyStats{count=" + mCount + ", average=" + getAverage() + ", max=" + mMax + "}";
+		}
+	}
+
+	/**
+	 * Interface implemented by the container the engine transforms
+	 */
+	interface Host {
+		/**
+		 * Scrolls the list by the given distance in unscaled pixels, as far as it can
+		 * @return the distance scrolled
+		 */
+		float scrollBy(float dy);
+
+		/**
+		 * Called with the vertical distance neither the list nor the zoomed viewport could consume, in unscaled pixels
+		 */
+		void onOverscroll(float dy);
+
+		void onTransformChanged(float scale, float translateX, float translateY);
+	}
+}
@@ -0,0 +1,124 @@
+package com.qqcomic.widget;
+
+/**
+ * Defines how {@link ScrollReaderListView} groups adapter items into rows and places them within a row.
+ * Every method is O(1), so fill, recycle and max Y computation stay O(visible) whatever the strategy.
+ * Items of a row are always consecutive in the adapter, and items keep their aspect ratio within their column,
+ * so a row is as high as its highest item scaled to the column width
+ */
+public interface ReaderLayoutStrategy {
+
+	/**
+	 * Gets the adapter index of the first item of the row which contains the given item
+	 * @param index
+	 * @return
+	 */
+	int getRowStart(int index);
+
+	/**
+	 * Gets the adapter index after the last item of the row which contains the given item
+	 * @param index
+	 * @param itemCount
+	 * @return
+	 */
+	int getRowEnd(int index, int itemCount);
+
+	/**
+	 * Gets the number of columns the content width is divided into
+	 * @return
+	 */
+	int getColumnCount();
+
+	/**
+	 * Gets the left edge of the item within the content width
+	 * @param index
+	 * @param rowStart
+	 * @param rowItemCount
+	 * @param columnWidth
+	 * @return
+	 */
+	int getItemLeft(int index, int rowStart, int rowItemCount, int columnWidth);
+
+	/**
+	 * A single full width column, the default layout
+	 */
+	ReaderLayoutStrategy SINGLE_COLUMN = new Columns(1);
+
+	/**
+	 * Lays items out in rows of a fixed number of columns, from left to right
+	 */
+	class Columns implements ReaderLayoutStrategy {
+
+		private final int mColumnCount;
+
+		public Columns(int columnCount) {
+			if (columnCount < 1) {
+				throw new IllegalArgumentException("columnCount must be positive: " + columnCount);
+			}
+			mColumnCount = columnCount;
+		}
+
+		@Override
+		public int getRowStart(int index) {
+			return index - index % mColumnCount;
+		}
+
+		@Override
+		public int getRowEnd(int index, int itemCount) {
+			return Math.min(getRowStart(index) + mColumnCount, itemCount);
+		}
+
+		@Override
+		public int getColumnCount() {
+			return mColumnCount;
+		}
+
+		@Override
+		public int getItemLeft(int index, int rowStart, int rowItemCount, int columnWidth) {
+			return (index - rowStart) * columnWidth;
+		}
+	}
+
+	/**
+	 * Lays pages out as double page spreads. The cover can be shown alone, and pages can be ordered from right to left
+	 * as manga are read. A spread with a single page has that page centered
+	 */
+	class Spreads implements ReaderLayoutStrategy {
+
+		private final boolean mSingleCover;
+		private final boolean mRightToLeft;
+
+		public Spreads(boolean singleCover, boolean rightToLeft) {
+			mSingleCover = singleCover;
+			mRightToLeft = rightToLeft;
+		}
+
+		@Override
+		public int getRowStart(int index) {
+			if (mSingleCover) {
+				return index == 0 ? 0 : index - (index - 1) % 2;
+			}
+			return index - index % 2;
+		}
+
+		@Override
+		public int getRowEnd(int index, int itemCount) {
+			int rowStart = getRowStart(index);
+			return Math.min(mSingleCover && rowStart == 0 ? 1 : rowStart + 2, itemCount);
+		}
+
+		@Override
+		public int getColumnCount() {
+			return 2;
+		}
+
+		@Override
+		public int getItemLeft(int index, int rowStart, int rowItemCount, int columnWidth) {
+			if (rowItemCount == 1) {
+				return columnWidth / 2;
+			}
+			int column = index - rowStart;
+			return (mRightToLeft ? rowItemCount - 1 - column : column) * columnWidth;
+		}
+	}
+}
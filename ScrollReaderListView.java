@@ -2,22 +2,33 @@ package com.qqcomic.widget;
 
 import android.content.Context;
 import android.database.DataSetObserver;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PointF;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.FloatMath;
 import android.view.GestureDetector;
+import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.view.animation.AnimationUtils;
 import android.widget.AdapterView;
 import android.widget.BaseAdapter;
 import android.widget.ListAdapter;
@@ -25,6 +36,7 @@ import android.widget.Scroller;
 import com.qqcomic.entity.ComicSectionPicInfo;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -49,8 +61,40 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	private final static float MIN_SCALE = 0.5f;
 	private final static float MAX_SCALE = 2.0f;
 
-	// Defines the rebound animation duration when in zoomin mode
-	private final int ANIM_DURATION = 200;
+	// Defines the pinch release velocity above which the zoom carries on, in natural log of the scale per second
+	private static final float MIN_ZOOM_FLING_VELOCITY = 1f;
+
+	// Defines the duration bounds of a smooth scroll to a position, as defined in {@code #smoothScrollToPosition(int, int)}
+	private static final int MIN_SMOOTH_SCROLL_DURATION = 250;
+	private static final int MAX_SMOOTH_SCROLL_DURATION = 800;
+
+	// Defines how the container presents the items: a vertical continuous scroll, or horizontal pages one screen at a time
+	public final static int READING_MODE_SCROLL = 0;
+	public final static int READING_MODE_PAGED = 1;
+
+	// Defines the max duration of the animation which snaps to a page in paged mode
+	private static final int PAGE_SNAP_DURATION = 300;
+
+	// Defines how many recycled views of a type the container keeps for itself while sharing a pool, the rest goes to the pool
+	private static final int MAX_LOCAL_VIEWS_PER_TYPE = 4;
+
+	// Defines how many tiles draw the stitched canvas. Zoomed out to the min scale the screen shows 1 / MIN_SCALE screens
+	// of the canvas, which that many screen high tiles and one more cover at any scroll position
+	private static final int STITCH_TILE_COUNT = (int) Math.ceil(1 / MIN_SCALE) + 1;
+
+	// Defines how far the content can be pulled past either end, and how far it must be pulled to reach the end, in dp
+	private static final int OVERSCROLL_DISTANCE_DP = 160;
+	private static final int OVERSCROLL_THRESHOLD_DP = 72;
+
+	// Defines the fraction of the heap the container's own bitmap pool may hold, 1 / 8
+	private static final int DEFAULT_BITMAP_POOL_FRACTION = 8;
+
+	// Defines the fast scroll thumb size in dp, and how long it stays visible after scrolling stops
+	private static final int FAST_SCROLL_THUMB_WIDTH_DP = 8;
+	private static final int FAST_SCROLL_THUMB_HEIGHT_DP = 48;
+	private static final int FAST_SCROLL_TOUCH_WIDTH_DP = 32;
+	private static final int FAST_SCROLL_HIDE_DELAY = 1500;
+	private static final int FAST_SCROLL_THUMB_COLOR = 0xaaffffff;
 
 	// Defines the touch mode when onTouchEvent is invoked
 	private final static int TOUCH_MODE_NONE = 0;
@@ -76,29 +120,41 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	// Tracks ongoing flings
 	public FlingTracker mFlingTracker;
 
+	// Turns pan and pinch gestures into the zoom transform and the list's scroll
+	private ReaderGestureEngine mGestureEngine;
+
+	// Stretches the content past either end and springs it back
+	private ElasticOverscroll mOverscroll;
+
+	// The part of the requested scroll below a pixel, carried over so that scrolling by fractions never drifts
+	private float mNextYRemainder;
+
+	// Tracks whether a frame has been requested to apply the resampled drag
+	private boolean mResamplePosted = false;
+
+	// Tracks whether a frame has been requested to apply the accumulated scroll
+	private boolean mScrollApplyPosted = false;
+
+	// Tracks whether a check of the chapter window's prefetch has been posted to run after the layout
+	private boolean mPrefetchCheckPosted = false;
+
+	// Whether the gesture engine is being driven from a frame callback, so the scroll it produces can be applied right away
+	private boolean mInFrameCallback = false;
+
 	private Matrix currentMatrix;
 	private Matrix savedMatrix;
-	private Matrix transitionMatrix;
-	private Matrix targetMatrix;
-
-	// The middle point bitween two fingers when scaling
-	private PointF middlePoint;
 
 	// Current matrix array
 	private float[] curMatrixArr = new float[9];
-	// Destination matrix array
-	private float[] targetMatrixArr =  new float[9];
-	// Transitionary matrix array
-	private float[] transMatrixArr = new float[9];
 
-	// The start time of zoom animation, or -1 if no animation
-	private long animationStartTime = -1L;
+	// Animates the zoom on double tap, after a pinch and on zoomTo()
+	private ZoomAnimator mZoomAnimator;
+
+	private OnZoomSettledListener mZoomSettledListener;
 
 	// The threshod distance
 	private int mTouchSlop;
 
-	// The lastest distance between two fingers in zoom gesture
-	private float oldDistance;
 	// The container's current scale factor
 	private float currentScale;
 
@@ -140,11 +196,41 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	private int mMaxY = Integer.MAX_VALUE;
 
 	private Drawable mDivider = null;
-	private int mDividerHeight = 0;
+	private int mDividerHeight = 10;
+
+	// Whether the divider thickness follows the zoom, otherwise it keeps the same thickness on screen at every zoom
+	private boolean mDividerScalesWithZoom = true;
+
+	// Every visible gap of a color divider, filled by a single draw per frame
+	private final Path mDividerPath = new Path();
+	private final Paint mDividerPaint = new Paint();
 
 	// This tracks the starting layout position of the leftmost view
 	private int mDisplayOffset;
 
+	// The adapter index, top and height of every attached child, kept in sync as children are attached and detached
+	private final AttachedSlots mSlots = new AttachedSlots();
+
+	// Whether consecutive slices are stitched into one continuous canvas drawn through screen sized tiles
+	private boolean mStitchMode = false;
+	private SliceRenderer mSliceRenderer;
+
+	// Exposes the items to accessibility services, created once a service asks for it
+	private ReaderAccessibilityProvider mAccessibilityProvider;
+	private ItemDescriber mItemDescriber;
+	private final Rect mTempBounds = new Rect();
+
+	// The visible range accessibility services have last been told about
+	private int mAccessibleRangeStart = -1;
+	private int mAccessibleRangeEnd = -1;
+
+	// Receives the visible range whenever it changes, for reading analytics
+	private VisibilityTelemetry mTelemetry;
+
+	// The tiles drawing the stitched canvas, attached instead of a child per item while stitching
+	private final ArrayList<StitchTile> mStitchTiles = new ArrayList<StitchTile>();
+	private boolean mTilesAttached = false;
+
 	//DataObserver used to capture data set change
 	private DataSetObserver mAdapterDataObserver;
 
@@ -182,6 +268,67 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	// Holds a cache of recycled views to be reused as needed
 	private List<Queue<View>> mRemovedViewsCache = new ArrayList<Queue<View>>();
 
+	// The windowed chapter data source, or null if the adapter is not backed by a chapter window
+	private ChapterWindow mChapterWindow;
+
+	// The placeholder height used to lay out items whose dstHeight is not known yet
+	private int mEstimatedItemHeight = 0;
+
+	// Indexed heights of every adapter item, rebuilt lazily once the data set changed
+	private final ItemHeightIndex mHeightIndex = new ItemHeightIndex();
+	private boolean mHeightIndexDirty = true;
+
+	// Defines how items are grouped into rows and placed within a row
+	private ReaderLayoutStrategy mLayoutStrategy = ReaderLayoutStrategy.SINGLE_COLUMN;
+
+	// Tracks whether mCurrentY must be recomputed from the topmost child once the data set change is laid out
+	private boolean mReanchorPending = false;
+
+	// The item and the offset within it to lay out at the top of the screen from scratch, or -1 if none
+	private int mPendingJumpIndex = -1;
+	private int mPendingJumpOffset;
+
+	// The current reading mode
+	private int mReadingMode = READING_MODE_SCROLL;
+
+	// The adapter index of the first item of the current page in paged mode, a page being a row of the layout strategy
+	private int mCurrentPageStart = 0;
+
+	// How far the pages have been dragged horizontally in paged mode, positive when the page on the right comes in
+	private int mPageScrollX = 0;
+
+	// Whether pages are ordered from right to left in paged mode, as manga are read
+	private boolean mPagedRightToLeft = false;
+
+	// Draws the fast scroll thumb, or null if fast scroll is disabled
+	private FastScroller mFastScroller;
+
+	// Tracks whether the user is scrubbing through the chapter, adapters bind low resolution previews meanwhile
+	private boolean mScrubbing = false;
+
+	private OnScrubListener mScrubListener;
+
+	// Children are bound at low resolution while a fling is faster than this, in pixels per millisecond. 0 disables it
+	private int mLowResolutionVelocity = 0;
+
+	// The attached children which have been bound at low resolution and must be bound again at full resolution
+	private final HashSet<View> mLowResolutionChildren = new HashSet<View>();
+
+	private final LowResolutionStats mLowResolutionStats = new LowResolutionStats();
+
+	// Schedules the decode and upload work of the adapter, created when first requested
+	private DecodeScheduler mDecodeScheduler;
+
+	// The view and bitmap pool shared with other containers, or null if this container only recycles into its own cache
+	private SharedReaderPool mSharedPool;
+
+	// The bitmap buffers released by this container's recycled children when there is no shared pool, created when first requested
+	private BitmapBufferPool mBitmapPool;
+
+	// The recording touch events are added to, and the probe measuring each frame's work while a recording is replayed
+	private ScrollReplay mReplayRecording;
+	private ScrollReplay.FrameProbe mReplayProbe;
+
 	public ScrollReaderListView(Context context) {
 		this(context, null);
 	}
@@ -204,28 +351,70 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 		mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
 		mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
 
-		mTopViewAdapterIndex = -1;
-		mBottomViewAdapterIndex = -1;
-		mCurrentY = 0;
-		mNextY = 0;
-		mDisplayOffset = 0;
-		mMaxY = Integer.MAX_VALUE;
+		mGestureEngine = new ReaderGestureEngine(new GestureEngineHost());
+		mGestureEngine.setScaleRange(MIN_SCALE, MAX_SCALE);
+		mGestureEngine.setTouchSlop(mTouchSlop);
+		mGestureEngine.setMinPinchSpan(FINGER_DISTANCE_THRESHOLD);
+		mGestureEngine.setMaxVelocity(mMaximumVelocity);
+		mGestureEngine.setResamplingEnabled(true);
+
+		float density = getResources().getDisplayMetrics().density;
+		mOverscroll = new ElasticOverscroll(new OverscrollHost(), OVERSCROLL_DISTANCE_DP * density, OVERSCROLL_THRESHOLD_DP * density);
+
 		setBackgroundColor(Color.BLACK);
 
 		currentMatrix = new Matrix();
 		savedMatrix = new Matrix();
-		targetMatrix = new Matrix();
-		transitionMatrix = new Matrix();
 
-		setDividerHeight(10);
+		mZoomAnimator = new ZoomAnimator(new ZoomAnimatorHost());
+		mZoomAnimator.setSteps(new float[] {1f, MAX_SCALE});
 
-		middlePoint = new PointF();
 		mGestureDector = new GestureDetector(null, new GestureDetector.SimpleOnGestureListener());
 		mGestureDector.setOnDoubleTapListener(onDoubleTapListener);
 
 		setFocusable(true);
-		setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
 		mAdapterDataObserver = new VerticalAdapterDataObserver();
+
+		resetState();
+	}
+
+	/**
+	 * Puts the scroll position, the zoom and the gesture state back to their initial values, reusing the objects allocated
+	 * by init(). The divider set by the user is kept
+	 */
+	private void resetState() {
+		if (!mFlingTracker.isFinished()) {
+			mFlingTracker.endFling();
+		}
+		removeCallbacks(mZoomFlingRunnable);
+		mGestureEngine.stopFling();
+		removeCallbacks(mResampleRunnable);
+		mResamplePosted = false;
+		mGestureEngine.onCancel();
+		removeCallbacks(mOverscrollRunnable);
+		mOverscroll.reset();
+		removeCallbacks(mZoomAnimationRunnable);
+		mZoomAnimator.cancel();
+		mNextYRemainder = 0;
+		mPageScrollX = 0;
+
+		mTopViewAdapterIndex = -1;
+		mBottomViewAdapterIndex = -1;
+		mCurrentY = 0;
+		mNextY = 0;
+		mDisplayOffset = 0;
+		mMaxY = Integer.MAX_VALUE;
+		// A jump requested before the reset must not move the new content
+		mPendingJumpIndex = -1;
+		mPendingJumpOffset = 0;
+
+		currentMatrix.reset();
+		savedMatrix.reset();
+		currentScale = 1;
+		// The engine would otherwise carry the old zoom and pan into the next gesture
+		mGestureEngine.setTransform(1, 0, 0);
+
+		setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
 	}
 
 	/**
@@ -247,6 +436,7 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 		} else {
 			setDividerHeight(0);
 		}
+		invalidate();
 	}
 
 	/**
@@ -254,545 +444,2578 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	 * @param height
 	 */
 	public void setDividerHeight(int height) {
+		// There is nothing to lay out again when the height has not changed
+		if (height == mDividerHeight) {
+			return;
+		}
 		mDividerHeight = height;
+		mHeightIndexDirty = true;
 		requestLayout();
 		invalidate();
 	}
 
 	/**
-	 * DataObserver used to capture adapter data change events
+	 * Sets whether the divider thickness follows the zoom. When it does not, the divider keeps the thickness it has unzoomed
+	 * on screen, centered in its gap, and never becomes thicker than the gap
+	 * @param scalesWithZoom
 	 */
-	class VerticalAdapterDataObserver extends DataSetObserver {
-
-		@Override
-		public void onChanged() {
-			mDataChanged = true;
-			mHasNotifiedRunningLowOnData = false;
-			unpressTouchedChild();
-			fixCurrentItemPosition();
-			invalidate();
-			requestLayout();
-		}
-
-		@Override
-		public void onInvalidated() {
-			mHasNotifiedRunningLowOnData = false;
-			unpressTouchedChild();
-			reset();
-			invalidate();
-			requestLayout();
-		}
+	public void setDividerScalesWithZoom(boolean scalesWithZoom) {
+		mDividerScalesWithZoom = scalesWithZoom;
+		invalidate();
 	}
 
-	/**
-	 * When the data set changed, we must fix mNextY, mCurrentY, mTopViewAdapterIndex, mBottomViewAdapterIndex, currentlySelectedAdapterIndex if needed
-	 */
-	private void fixCurrentItemPosition() {
-		if (mAdapter != null) {
-			int oldSelectedAdapterIndex = currentlySelectedAdapterIndex;
-			View v = getChild(currentlySelectedAdapterIndex);
-			ComicSectionPicInfo curItem = (ComicSectionPicInfo)mAdapter.getItem(currentlySelectedAdapterIndex);
-			ComicSectionPicInfo oldItem = ((ScrollReaderHelper.ReaderHolder)v.getTag()).picInfo;
-			int gapTop = currentlySelectedAdapterIndex - mTopViewAdapterIndex;
-			int gapBottom = currentlySelectedAdapterIndex - mBottomViewAdapterIndex;
-			if (curItem != oldItem) {
-				int itemCount = mAdapter.getCount();
-				ComicSectionPicInfo tempItem;
-				for (int i = 0; i < itemCount; i++) {
-					tempItem = (ComicSectionPicInfo)mAdapter.getItem(i);
-					if (tempItem == oldItem) {
-						currentlySelectedAdapterIndex = i;
-						break;
-					}
-				}
-
-				int changeCount = currentlySelectedAdapterIndex - oldSelectedAdapterIndex;
-				for (int i = 0; i < changeCount; i++) {
-					mCurrentY += ((ComicSectionPicInfo)mAdapter.getItem(i)).dstHeight + mDividerHeight;
-				}
-				mNextY = mCurrentY;
-				mTopViewAdapterIndex =  currentlySelectedAdapterIndex - gapTop;
-				mBottomViewAdapterIndex = currentlySelectedAdapterIndex - gapBottom;
-				firstVisibleItemIndex += changeCount;
-				System.out.println("currentlySelectedAdapterIndex:" + currentlySelectedAdapterIndex + ", mTopViewAdapterIndex:" + mTopViewAdapterIndex + ", mBottomViewAdapterIndex:" + mBottomViewAdapterIndex);
-			}
-
-		}
+	public boolean isDividerScalesWithZoom() {
+		return mDividerScalesWithZoom;
 	}
 
 	/**
-	 * If a view is currently being pressed, then unpress it
+	 * Sets whether consecutive slices, cut from one tall image, are stitched back into one continuous canvas. The canvas has
+	 * no divider and is drawn through a few tiles as high as the screen by the {@link SliceRenderer}, so the number of attached
+	 * views stays the same however finely the chapter was sliced and no item view is bound while stitching.
+	 * Only the scroll mode with a single column is stitched, the other modes lay out a child per item as usual
+	 * @param stitchMode
 	 */
-	private void unpressTouchedChild() {
-		if (mViewBeingTouched != null) {
-			mViewBeingTouched.setPressed(false);
-			mViewBeingTouched = null;
-			refreshDrawableState();
+	public void setStitchMode(boolean stitchMode) {
+		if (mStitchMode == stitchMode) {
+			return;
+		}
+		mStitchMode = stitchMode;
+		mHeightIndexDirty = true;
+		// The position is carried over as the topmost item and the distance scrolled into it, which both layouts keep
+		if (getChildCount() > 0 && mReadingMode == READING_MODE_SCROLL) {
+			requestJumpTo(mTopViewAdapterIndex, getTopmostRowOffset());
 		}
-		setPressed(false);
-	}
-
-	/**
-	 * Will re-initialize the ScrollReaderListView to remove all child views rendered and reset to initial configuration
-	 */
-	private void reset() {
-		init();
-		removeAllViewsInLayout();
 		requestLayout();
+		invalidate();
 	}
 
-	/**
-	 * Interface definition for a callback to be invoked when the scroll state has changed
-	 */
-	public interface OnScrollStateChangedListener {
-		int SCROLL_STATE_IDLE = 0x1001;
-		int SCROLL_STATE_TOUCH_SCROLL = 0x1002;
-		int SCROLL_STATE_FLING = 0x1003;
-
-		void onScrollStateChanged(int scrollState);
+	public boolean isStitchMode() {
+		return mStitchMode;
 	}
 
 	/**
-	 * Sets a listener to be invoked when the scroll state changes
-	 * @param listener
+	 * Sets the renderer drawing the slices while stitching
+	 * @param renderer
 	 */
-	public void setOnScrollStateChangedListener(OnScrollStateChangedListener listener) {
-		mOnScrollStateChangedListener = listener;
+	public void setSliceRenderer(SliceRenderer renderer) {
+		mSliceRenderer = renderer;
+		invalidateTiles();
 	}
 
 	/**
-	 * Sets a listener to be invoked when the page state changeds
-	 * @param listener
+	 * Redraws the part of the stitched canvas covered by the given item, e.g. once its image has been decoded.
+	 * Does nothing when not stitching, notify the adapter instead
+	 * @param adapterIndex
 	 */
-	public void setOnComicPageChangeListener(OnComicPageChangedListener listener) {
-		mPageChangedListener = listener;
+	public void invalidateSlice(int adapterIndex) {
+		if (!mTilesAttached || mAdapter == null || adapterIndex < 0 || adapterIndex >= mAdapter.getCount()) {
+			return;
+		}
+		ItemHeightIndex heightIndex = getHeightIndex();
+		long sliceTop = heightIndex.offsetOf(adapterIndex);
+		long sliceBottom = sliceTop + heightIndex.get(adapterIndex);
+		for (StitchTile tile : mStitchTiles) {
+			long tileTop = tile.getCanvasTop();
+			if (tileTop < sliceBottom && tileTop + tile.getHeight() > sliceTop) {
+				tile.invalidate();
+			}
+		}
 	}
 
 	/**
-	 * Sets a listener to be invoked when comic container flings
-	 * @param listener
+	 * Whether the current layout stitches the slices
+	 * @return
 	 */
-	public void setOnComicFlingListener(OnComicFlingListener listener) {
-		mFlingListener = listener;
+	private boolean isStitching() {
+		return mStitchMode && mReadingMode == READING_MODE_SCROLL && mLayoutStrategy.getColumnCount() == 1;
 	}
 
 	/**
-	 * Sets a listener to be invoked when touch state changed
-	 * @param listener
+	 * Sets the windowed chapter data source backing the adapter. Chapters will be paged in when the container
+	 * reaches its header or footer, and the visible position is kept stable when chapters are paged in or evicted
+	 * @param chapterWindow
 	 */
-	public void setOnComicTouchListener(OnComicTouchListener listener) {
-		mTouchListener = listener;
+	public void setChapterWindow(ChapterWindow chapterWindow) {
+		if (mChapterWindow != null) {
+			mChapterWindow.attachHost(null);
+		}
+		mChapterWindow = chapterWindow;
+		if (chapterWindow != null) {
+			chapterWindow.attachHost(new ChapterWindowHost());
+		}
 	}
 
 	/**
-	 * Update current scroll state
-	 * @param newScrollState
+	 * Host used to keep the container's position stable when the chapter window changes
 	 */
-	private void setCurrentScrollState(int newScrollState) {
-		if (mCurrentScrollState != newScrollState && mOnScrollStateChangedListener != null) {
-			mOnScrollStateChangedListener.onScrollStateChanged(newScrollState);
-		}
-		mCurrentScrollState = newScrollState;
-	}
+	class ChapterWindowHost implements ChapterWindow.Host {
 
+		@Override
+		public int getFirstAttachedPosition() {
+			return getChildCount() > 0 ? mTopViewAdapterIndex : -1;
+		}
 
+		@Override
+		public int getLastAttachedPosition() {
+			return getChildCount() > 0 ? mBottomViewAdapterIndex : -1;
+		}
 
-	/**
-	 * Sets a listener to be called when the ScrollReaderListView has been scrolled to a point where it is
-	 * running low on data
-	 * An example use case is wanting to auto download more data when the user
-	 * has scrolled to the point where only 10 items are left to be rendered off the bottom of the screen
-	 * @param listener
-	 * @param numberOfItemsLeftConsideredLow
-	 */
-	public void setRunningOutOfDataListener(RunningOutOfDataListener listener, int numberOfItemsLeftConsideredLow) {
-		mRunningOutOfDataListener = listener;
-		mRunningOutOfDataThreshold = numberOfItemsLeftConsideredLow;
-	}
+		@Override
+		public int getContentWidth() {
+			return ScrollReaderListView.this.getContentWidth();
+		}
 
-	public static interface RunningOutOfDataListener {
-		void onRunningOutOfData();
-	}
+		@Override
+		public void onWindowShifted(int itemDelta) {
+			shiftAdapterPositions(itemDelta);
+		}
 
-	/**
-	 * Determins if we have meet the condition to notify the lowdata listener
-	 */
-	private void determineIfLowOnData() {
-		if (mRunningOutOfDataListener != null && mAdapter != null &&
-				mAdapter.getCount() - (mBottomViewAdapterIndex + 1) < mRunningOutOfDataThreshold) {
-			if (!mHasNotifiedRunningLowOnData) {
-				mHasNotifiedRunningLowOnData = true;
-				mRunningOutOfDataListener.onRunningOutOfData();
+		@Override
+		public void onWindowChanged() {
+			if (mAdapter != null) {
+				mAdapter.notifyDataSetChanged();
 			}
 		}
 	}
 
-	/**
-	 * Finds a child view that is contained within this view, given the adapter index
-	 * @param adapterIndex
-	 * @return
-	 */
-	private View getChild(int adapterIndex) {
-		if (adapterIndex >= mTopViewAdapterIndex && adapterIndex <= mBottomViewAdapterIndex) {
-			return getChildAt(adapterIndex - mTopViewAdapterIndex);
+	class DecodeSchedulerHost implements DecodeScheduler.Host {
+
+		@Override
+		public int getFirstAttachedPosition() {
+			return getChildCount() > 0 ? mTopViewAdapterIndex : -1;
 		}
-		return null;
-	}
 
-	/**
-	 * Will create and initialize a cache for the given number of different types of recyceld views to be used as needed
-	 * @param viewTypeCount
-	 */
-	private void initializeRecycledViewCache(int viewTypeCount) {
-		mRemovedViewsCache.clear();
-		for (int i = 0; i < viewTypeCount; i++) {
-			mRemovedViewsCache.add(new LinkedList<View>());
+		@Override
+		public int getLastAttachedPosition() {
+			return getChildCount() > 0 ? mBottomViewAdapterIndex : -1;
 		}
-	}
 
-	/**
-	 * Returns a recycled view from the cache that can be reused, or null if one is one is not available
-	 * @param adapterIndex
-	 * @return
-	 */
-	private View getRecycledView(int adapterIndex) {
-		int itemViewType = mAdapter.getItemViewType(adapterIndex);
-		if (isItemViewTypeValid(itemViewType)) {
-			return mRemovedViewsCache.get(itemViewType).poll();
+		@Override
+		public boolean isScrolling() {
+			return mCurrentScrollState != OnScrollStateChangedListener.SCROLL_STATE_IDLE || mZoomAnimator.isRunning();
+		}
+
+		@Override
+		public void postOnFrame(Runnable runnable) {
+			ScrollReaderListView.this.postOnFrame(runnable);
 		}
-		return null;
 	}
 
-	/**
-	 * Adds the provided view to a recycled views cache
-	 * @param adapterIndex
-	 * @param view
-	 */
-	private void recycleView(int adapterIndex, View view) {
-		int itemViewType = mAdapter.getItemViewType(adapterIndex);
-		if (isItemViewTypeValid(itemViewType)) {
-			mRemovedViewsCache.get(itemViewType).offer(view);
+	class AccessibilityHost implements ReaderAccessibilityProvider.Host {
+
+		@Override
+		public int getItemCount() {
+			return mAdapter != null ? mAdapter.getCount() : 0;
 		}
-	}
 
-	private boolean isItemViewTypeValid(int itemViewType) {
-		return itemViewType < mRemovedViewsCache.size();
-	}
+		@Override
+		public int getFirstVisibleIndex() {
+			return getVisibleRangeStart();
+		}
 
-	@Override
-	public BaseAdapter getAdapter() {
-		return mAdapter;
-	}
+		@Override
+		public int getLastVisibleIndex() {
+			return getVisibleRangeEnd();
+		}
 
-	@Override
-	public void setAdapter(ListAdapter adapter) {
-		if (mAdapter != null) {
-			mAdapter.unregisterDataSetObserver(mAdapterDataObserver);
+		@Override
+		public boolean getItemBounds(int index, Rect bounds) {
+			float left;
+			float top;
+			float right;
+			float bottom;
+			if (mReadingMode == READING_MODE_PAGED) {
+				// Only the current page is laid out, the other pages are off the screen
+				View child = getChild(index);
+				if (child == null) {
+					bounds.setEmpty();
+					return false;
+				}
+				left = child.getLeft();
+				top = child.getTop();
+				right = child.getRight();
+				bottom = child.getBottom();
+			} else {
+				// Placed from the indexed heights as positionChildren would, whether the item is attached or not
+				int itemCount = mAdapter.getCount();
+				int rowStart = mLayoutStrategy.getRowStart(index);
+				int rowItemCount = mLayoutStrategy.getRowEnd(rowStart, itemCount) - rowStart;
+				int columnWidth = getColumnWidth();
+				left = getPaddingLeft() + mLayoutStrategy.getItemLeft(index, rowStart, rowItemCount, columnWidth);
+				top = getPaddingTop() + getHeightIndex().offsetOf(rowStart) - mCurrentY;
+				right = left + (mLayoutStrategy.getColumnCount() > 1 ? columnWidth : getWidth() - getPaddingLeft() - getPaddingRight());
+				bottom = top + scaleToColumn(getItemHeight((ComicSectionPicInfo) mAdapter.getItem(index)));
+			}
+			// As drawn, under the zoom and the overscroll stretch
+			float scale = curMatrixArr[Matrix.MSCALE_X];
+			float translateX = curMatrixArr[Matrix.MTRANS_X];
+			float translateY = curMatrixArr[Matrix.MTRANS_Y] + mOverscroll.getOffset();
+			bounds.set(Math.round(left * scale + translateX), Math.round(top * scale + translateY),
+					Math.round(right * scale + translateX), Math.round(bottom * scale + translateY));
+			return bounds.right > 0 && bounds.left < getWidth() && bounds.bottom > 0 && bounds.top < getHeight();
 		}
-		if (adapter != null) {
-			mHasNotifiedRunningLowOnData = false;
-			mAdapter = (BaseAdapter)adapter;
-			mAdapter.registerDataSetObserver(mAdapterDataObserver);
+
+		@Override
+		public int getItemAt(float x, float y) {
+			if (mAdapter == null || mAdapter.getCount() == 0) {
+				return -1;
+			}
+			// Back from the screen to the layout, as the children are laid out before the zoom
+			float scale = curMatrixArr[Matrix.MSCALE_X];
+			float layoutX = (x - curMatrixArr[Matrix.MTRANS_X]) / scale;
+			float layoutY = (y - curMatrixArr[Matrix.MTRANS_Y] - mOverscroll.getOffset()) / scale;
+			if (mReadingMode == READING_MODE_PAGED) {
+				for (int i = 0; i < getChildCount(); i++) {
+					View child = getChildAt(i);
+					if (layoutX >= child.getLeft() && layoutX < child.getRight() && layoutY >= child.getTop() && layoutY < child.getBottom()) {
+						return mTopViewAdapterIndex + i;
+					}
+				}
+				return -1;
+			}
+
+			ItemHeightIndex heightIndex = getHeightIndex();
+			long contentY = (long) (layoutY - getPaddingTop()) + mCurrentY;
+			if (contentY < 0 || contentY >= heightIndex.total()) {
+				return -1;
+			}
+			int rowStart = mLayoutStrategy.getRowStart(heightIndex.indexAt(contentY));
+			int rowEnd = mLayoutStrategy.getRowEnd(rowStart, mAdapter.getCount());
+			int columnWidth = getColumnWidth();
+			for (int i = rowStart; i < rowEnd; i++) {
+				int left = getPaddingLeft() + mLayoutStrategy.getItemLeft(i, rowStart, rowEnd - rowStart, columnWidth);
+				if (layoutX >= left && layoutX < left + columnWidth) {
+					return i;
+				}
+			}
+			return rowStart;
 		}
-		initializeRecycledViewCache(mAdapter.getViewTypeCount());
-		reset();
-	}
 
-	@Override
-	public View getSelectedView() {
-		return getChild(currentlySelectedAdapterIndex);
+		@Override
+		public CharSequence getItemDescription(int index) {
+			int itemCount = mAdapter.getCount();
+			if (mItemDescriber != null) {
+				return mItemDescriber.describeItem(index, (ComicSectionPicInfo) mAdapter.getItem(index), itemCount);
+			}
+			return (index + 1) + "/" + itemCount;
+		}
+
+		@Override
+		public void showItem(int index) {
+			currentlySelectedAdapterIndex = index;
+			if (!getItemBounds(index, mTempBounds)) {
+				setSelection(index);
+			}
+		}
 	}
 
-	@Override
-	public void setSelection(int position) {
-		if (mAdapter != null) {
-			int itemCount = mAdapter.getCount();
-			if (position >= 0 && position < itemCount) {
-				currentlySelectedAdapterIndex = position;
-				int tempNextY = -1;
-				for (int i = 0; i < currentlySelectedAdapterIndex; i++) {
-					tempNextY += ((ComicSectionPicInfo)mAdapter.getItem(i)).dstHeight + mDividerHeight;
+	class GestureEngineHost implements ReaderGestureEngine.Host {
+
+		@Override
+		public float scrollBy(float dy) {
+			// Pages are not scrolled vertically in paged mode, the zoomed viewport moves instead
+			if (mReadingMode != READING_MODE_SCROLL) {
+				return 0;
+			}
+			// Moving back from an end takes back the stretch before scrolling
+			float relaxed = 0;
+			if (mOverscroll.isStretched()) {
+				relaxed = -mOverscroll.relax(-dy * currentScale) / currentScale;
+				dy -= relaxed;
+			}
+			float consumed = dy < 0 ? Math.max(dy, -mNextY) : Math.min(dy, (float) mMaxY - mNextY);
+			if (consumed != 0) {
+				if (mCurrentScrollState == OnScrollStateChangedListener.SCROLL_STATE_IDLE) {
+					setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_TOUCH_SCROLL);
 				}
-				if (tempNextY >= 0) {
-					mNextY = tempNextY;
-					requestLayout();
-					if (!mFlingTracker.isFinished()) {
-						mFlingTracker.endFling();
-					}
+				unpressTouchedChild();
+				scrollNextYBy(consumed);
+				if (mInFrameCallback) {
+					applyPendingScroll();
+				} else {
+					scheduleScrollApply();
 				}
 			}
+			if (mNextY > 0) {
+				headerStatus = HEADER_STATUS_IDLE;
+			}
+			if (mNextY < mMaxY) {
+				footerStatus = FOOTER_STATUS_IDLE;
+			}
+			return relaxed + consumed;
+		}
+
+		@Override
+		public void onOverscroll(float dy) {
+			onOverscrolled(dy);
+		}
+
+		@Override
+		public void onTransformChanged(float scale, float translateX, float translateY) {
+			applyTransform(scale, translateX, translateY);
+		}
+	}
 
+	class ZoomAnimatorHost implements ZoomAnimator.Host {
+
+		@Override
+		public void onZoomFrame(float scale, float translateX, float translateY) {
+			applyTransform(scale, translateX, translateY);
+			mGestureEngine.setTransform(scale, translateX, translateY);
 		}
 
+		@Override
+		public void onZoomSettled() {
+			onZoomSettledAt();
+		}
 	}
 
 	/**
-	 * Simple convenience method for determining if this index is the last index in the adapter
-	 * @param index
-	 * @return
+	 * Steps the zoom animation once per frame
 	 */
-	private boolean isLastItemInAdapter(int index) {
-		return index == mAdapter.getCount() - 1;
+	private final Runnable mZoomAnimationRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (mZoomAnimator.step(AnimationUtils.currentAnimationTimeMillis())) {
+				postOnFrame(this);
+			}
+		}
+	};
+
+	private void applyTransform(float scale, float translateX, float translateY) {
+		currentMatrix.setScale(scale, scale);
+		currentMatrix.postTranslate(translateX, translateY);
+		currentMatrix.getValues(curMatrixArr);
+		currentScale = scale;
+		invalidate();
 	}
 
+	/**
+	 * Called once the zoom stops changing. Decoding the visible region at the new scale waits until then,
+	 * rather than running for every frame of the animation
+	 */
+	private void onZoomSettledAt() {
+		if (mDecodeScheduler != null) {
+			mDecodeScheduler.dispatch();
+		}
+		publishVisibleRange();
+		if (mZoomSettledListener != null) {
+			mZoomSettledListener.onZoomSettled(currentScale);
+		}
+	}
 
 	/**
-	 * Remove unnecessary views which against the specified rules
+	 * Animates the zoom to the given scale about the given point, which stays where it is on the screen
+	 * @param scale
+	 * @param focusX
+	 * @param focusY
 	 */
-	private void removeUnnecessaryViews(final int dy) {
-		View child = getTopmostChild();
+	public void zoomTo(float scale, float focusX, float focusY) {
+		animateZoom(Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale)), focusX, focusY, 0);
+	}
 
-		// Loop removing the top most child , until that child is the first view outside the screen
-		while (child != null && child.getBottom() + getSubTopmostChildHeight() + dy <= 0) {
-			mDisplayOffset += isLastItemInAdapter(mTopViewAdapterIndex) ? child.getMeasuredHeight() : mDividerHeight + child.getMeasuredHeight();
+	/**
+	 * Sets the scales a zoom fling settles on and a double tap cycles through, 1 and the maximum scale by default
+	 * @param steps
+	 */
+	public void setZoomSteps(float... steps) {
+		for (float step : steps) {
+			if (step < MIN_SCALE || step > MAX_SCALE) {
+				throw new IllegalArgumentException("Zoom step out of range: " + step);
+			}
+		}
+		mZoomAnimator.setSteps(steps);
+	}
 
-			// Add the removed view to the cache
-			recycleView(mTopViewAdapterIndex, child);
+	public float[] getZoomSteps() {
+		return mZoomAnimator.getSteps();
+	}
 
-			// Actuallly remove the view
-			removeViewInLayout(child);
+	public void setOnZoomSettledListener(OnZoomSettledListener listener) {
+		mZoomSettledListener = listener;
+	}
 
-			// Keep track of the adapter index of the top most child
-			mTopViewAdapterIndex++;
+	private void animateZoom(float scale, float focusX, float focusY, float logScaleVelocity) {
+		removeCallbacks(mZoomAnimationRunnable);
+		currentMatrix.getValues(curMatrixArr);
+		mZoomAnimator.setViewportSize(getWidth(), getHeight());
+		mZoomAnimator.animateTo(currentScale, curMatrixArr[Matrix.MTRANS_X], curMatrixArr[Matrix.MTRANS_Y], scale,
+				focusX, focusY, logScaleVelocity, AnimationUtils.currentAnimationTimeMillis());
+		postOnFrame(mZoomAnimationRunnable);
+	}
 
-			// Get the new top most child
-			child = getTopmostChild();
+	/**
+	 * Ends a pinch: a fast one carries on to the nearest zoom step, one released zoomed out springs back to the full width
+	 * @return whether the zoom animates, in which case the remaining finger is ignored
+	 */
+	private boolean finishPinch() {
+		float velocity = mGestureEngine.getScaleVelocity();
+		float focusX = mGestureEngine.getPinchFocusX();
+		float focusY = mGestureEngine.getPinchFocusY();
+		if (Math.abs(velocity) > MIN_ZOOM_FLING_VELOCITY) {
+			removeCallbacks(mZoomAnimationRunnable);
+			currentMatrix.getValues(curMatrixArr);
+			mZoomAnimator.setViewportSize(getWidth(), getHeight());
+			mZoomAnimator.fling(currentScale, curMatrixArr[Matrix.MTRANS_X], curMatrixArr[Matrix.MTRANS_Y], velocity,
+					focusX, focusY, AnimationUtils.currentAnimationTimeMillis());
+			postOnFrame(mZoomAnimationRunnable);
+			return true;
 		}
+		if (currentScale < 1) {
+			animateZoom(1, focusX, focusY, velocity);
+			return true;
+		}
+		onZoomSettledAt();
+		return false;
+	}
 
-		child = getBottommostChild();
+	class OverscrollHost implements ElasticOverscroll.Host {
 
-		// Loop removing the bottom most child, until that child is the first view outside the screen
-		while (child != null && child.getTop() + dy - getSubBottommostChildHeight() >= getHeight()) {
-			recycleView(mBottomViewAdapterIndex, child);
-			removeViewInLayout(child);
-			mBottomViewAdapterIndex--;
-			child = getBottommostChild();
+		@Override
+		public void onOverscrollChanged(float offset) {
+			invalidate();
+		}
+
+		@Override
+		public void onThresholdReleased(boolean header) {
+			if (header) {
+				onReachHeader();
+			} else {
+				onReachFooter();
+			}
 		}
 	}
 
 	/**
-	 * Adds children views to the top and bottom of the current views until the screen is full
-	 * @param dy
+	 * Steps the overscroll spring back once per frame
 	 */
-	private void fillList(final int dy) {
-		// Get the bottommost child and determine its bottom edge
-		int topEdge = 0;
-		int bottomEdge = 0;
-
-		View child = getBottommostChild();
-		if (child != null) {
-			topEdge = child.getTop();
+	private final Runnable mOverscrollRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (mOverscroll.step(AnimationUtils.currentAnimationTimeMillis())) {
+				postOnFrame(this);
+			}
 		}
+	};
 
-		// Add new children views to the bottom, until the view is the first off the screen
-		fillListBottom(topEdge, dy);
-
-		// Get the topmost child and determine its top edge
-		child = getTopmostChild();
-		if (child != null) {
-			bottomEdge = child.getBottom();
+	/**
+	 * Handles the content moving past either end by the given distance in unscaled pixels, whatever moved it.
+	 * A drag stretches the content, a fling is absorbed by the spring, a smooth or auto scroll reaches the end at once
+	 * @param dy negative past the header, positive past the footer
+	 */
+	private void onOverscrolled(float dy) {
+		if (mReadingMode != READING_MODE_SCROLL || dy == 0) {
+			return;
+		}
+		if (mGestureEngine.isFlinging()) {
+			// The engine stops its vertical velocity itself, the fling goes on horizontally
+			startOverscrollSpring(mGestureEngine.getVelocityY());
+		} else if (mFlingTracker.isFlinging()) {
+			float velocity = mFlingTracker.getScrollerVelocity();
+			mFlingTracker.endFling();
+			startOverscrollSpring(dy < 0 ? velocity : -velocity);
+		} else if (mGestureEngine.isDragging()) {
+			mOverscroll.pull(-dy * currentScale);
+		} else if (dy < 0) {
+			onReachHeader();
+		} else {
+			onReachFooter();
 		}
+	}
 
-		// Add new children views to the top, until the view is the first off the screen
-		fillListTop(bottomEdge, dy);
+	/**
+	 * Absorbs a fling into the overscroll spring
+	 * @param velocity in screen pixels per second, positive when running into the header
+	 */
+	private void startOverscrollSpring(float velocity) {
+		removeCallbacks(mOverscrollRunnable);
+		mOverscroll.absorb(velocity, AnimationUtils.currentAnimationTimeMillis());
+		postOnFrame(mOverscrollRunnable);
+	}
 
+	/**
+	 * Lets go of the stretched content, which springs back
+	 */
+	private void releaseOverscroll() {
+		if (mOverscroll.isStretched()) {
+			removeCallbacks(mOverscrollRunnable);
+			mOverscroll.release(AnimationUtils.currentAnimationTimeMillis());
+			postOnFrame(mOverscrollRunnable);
+		}
 	}
 
+	/**
+	 * Sets how far the content must be pulled past either end and released to reach that end, e.g. to load the adjacent chapter
+	 * @param pixels
+	 */
+	public void setPullThreshold(int pixels) {
+		mOverscroll.setThreshold(pixels);
+	}
 
-	private void fillListBottom(int topEdge, final int dy) {
+	/**
+	 * Runs the gesture engine's two dimensional fling while zoomed, once per frame
+	 */
+	private final Runnable mZoomFlingRunnable = new Runnable() {
+		@Override
+		public void run() {
+			mInFrameCallback = true;
+			boolean more = mGestureEngine.computeFling(AnimationUtils.currentAnimationTimeMillis());
+			mInFrameCallback = false;
+			if (more) {
+				postOnFrame(this);
+			} else if (mCurrentScrollState == OnScrollStateChangedListener.SCROLL_STATE_FLING) {
+				setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
+			}
+		}
+	};
 
-		// Loop adding views to the bottom until the view is the first one that off the screen
-		while (topEdge + dy  < getHeight() && mBottomViewAdapterIndex + 1 < mAdapter.getCount()) {
-			mBottomViewAdapterIndex++;
+	/**
+	 * Shifts every tracked adapter index when items are inserted into or removed from the front of the adapter,
+	 * the y positions are recomputed from the topmost child once the change is laid out, so the visible position stays where it is
+	 * @param itemDelta
+	 */
+	private void shiftAdapterPositions(int itemDelta) {
+		if (getChildCount() > 0) {
+			mTopViewAdapterIndex += itemDelta;
+			mBottomViewAdapterIndex += itemDelta;
+			for (int i = 0; i < getChildCount() && !mTilesAttached; i++) {
+				((ScrollReaderHelper.ReaderHolder) getChildAt(i).getTag()).adapterIndex += itemDelta;
+			}
+			mSlots.shiftAdapterIndices(itemDelta);
+		}
+		currentlySelectedAdapterIndex = Math.max(0, currentlySelectedAdapterIndex + itemDelta);
+		firstVisibleItemIndex = Math.max(0, firstVisibleItemIndex + itemDelta);
+		mCurrentPageStart = Math.max(0, mCurrentPageStart + itemDelta);
+		mReanchorPending = true;
+		if (mDecodeScheduler != null) {
+			mDecodeScheduler.shiftPositions(itemDelta);
+		}
+		if (mAccessibilityProvider != null) {
+			mAccessibilityProvider.shiftItems(itemDelta);
+		}
 
-			// Get the view from the adapter, utilizing a cached a view if one is available
-			View child = mAdapter.getView(mBottomViewAdapterIndex, getRecycledView(mBottomViewAdapterIndex), this);
-			addAndMeasureChild(child, INSERT_AT_END_OF_LIST);
+		// Pages have been paged in before the header, so the next time it is reached should be notified again
+		headerStatus = HEADER_STATUS_IDLE;
+	}
 
+	/**
+	 * DataObserver used to capture adapter data change events
+	 */
+	class VerticalAdapterDataObserver extends DataSetObserver {
 
-			// If mTopViewAdapterIndex < 0 then this is the first time a view is being added, and top == bottom
-			if (mTopViewAdapterIndex < 0) {
-				mTopViewAdapterIndex = mBottomViewAdapterIndex;
-				topEdge = 0;
-			} else {
-				// If first view, then no divider to the top of it, otherwise add the space for the divider height
-				topEdge += (mBottomViewAdapterIndex == 0 ? 0 : mDividerHeight) + child.getMeasuredHeight();
-			}
+		@Override
+		public void onChanged() {
+			mDataChanged = true;
+			mHeightIndexDirty = true;
+			mHasNotifiedRunningLowOnData = false;
+			unpressTouchedChild();
+			fixCurrentItemPosition();
+			invalidate();
+			requestLayout();
+		}
 
-			// Check if we are running low on data so we can tell listenrs to go get more
-			determineIfLowOnData();
+		@Override
+		public void onInvalidated() {
+			mHeightIndexDirty = true;
+			mHasNotifiedRunningLowOnData = false;
+			unpressTouchedChild();
+			reset();
+			invalidate();
+			requestLayout();
 		}
 	}
 
-	private void fillListTop(int bottomEdge, final int dy) {
-
-		// Loop adding views to the top until the view is the first one that off the screen
-		while (bottomEdge + dy > 0 && mTopViewAdapterIndex >= 1) {
-			mTopViewAdapterIndex--;
-			View child = mAdapter.getView(mTopViewAdapterIndex, getRecycledView(mTopViewAdapterIndex), this);
-			addAndMeasureChild(child, INSERT_AT_START_OF_LIST);
+	/**
+	 * When the data set changed, we must fix mNextY, mCurrentY, mTopViewAdapterIndex, mBottomViewAdapterIndex, currentlySelectedAdapterIndex if needed
+	 */
+	private void fixCurrentItemPosition() {
+		if (mAdapter != null) {
+			int oldSelectedAdapterIndex = currentlySelectedAdapterIndex;
+			View v = getChild(currentlySelectedAdapterIndex);
+			if (v == null || currentlySelectedAdapterIndex >= mAdapter.getCount()) {
+				return;
+			}
+			ComicSectionPicInfo curItem = (ComicSectionPicInfo)mAdapter.getItem(currentlySelectedAdapterIndex);
+			ComicSectionPicInfo oldItem = mSlots.getPicInfo(currentlySelectedAdapterIndex - mTopViewAdapterIndex);
+			int gapTop = currentlySelectedAdapterIndex - mTopViewAdapterIndex;
+			int gapBottom = currentlySelectedAdapterIndex - mBottomViewAdapterIndex;
+			if (curItem != oldItem) {
+				int itemCount = mAdapter.getCount();
+				ComicSectionPicInfo tempItem;
+				for (int i = 0; i < itemCount; i++) {
+					tempItem = (ComicSectionPicInfo)mAdapter.getItem(i);
+					if (tempItem == oldItem) {
+						currentlySelectedAdapterIndex = i;
+						break;
+					}
+				}
 
-			// If first view, then no divider of the top of it
-			bottomEdge -= mTopViewAdapterIndex == 0 ? child.getMeasuredHeight() : mDividerHeight + child.getMeasuredHeight();
+				int changeCount = currentlySelectedAdapterIndex - oldSelectedAdapterIndex;
+				mNextY = mCurrentY;
+				mReanchorPending = true;
+				mTopViewAdapterIndex =  currentlySelectedAdapterIndex - gapTop;
+				mBottomViewAdapterIndex = currentlySelectedAdapterIndex - gapBottom;
+				firstVisibleItemIndex += changeCount;
+			}
 
-			mDisplayOffset -= mDividerHeight + child.getMeasuredHeight();
 		}
 	}
 
 	/**
-	 * Adds a child to this viewgroup and measure it so it renders the correct size
-	 * @param child
-	 * @param viewPos
+	 * Sets the placeholder height used to lay out items whose dstHeight is not known yet (dstHeight <= 0).
+	 * The real height is delivered later through {@link #onItemHeightResolved(int, ComicSectionPicInfo, int)}
+	 * @param height
 	 */
-	private void addAndMeasureChild(final View child, int viewPos) {
-		LayoutParams params = getLayoutParams(child);
-		addViewInLayout(child, viewPos, params, true);
-		measureChild(child);
+	public void setEstimatedItemHeight(int height) {
+		if (mEstimatedItemHeight != height) {
+			mEstimatedItemHeight = height;
+			mHeightIndexDirty = true;
+			requestLayout();
+		}
 	}
 
 	/**
-	 * measure the provided child
+	 * Gets the height used to lay out the item, which is its placeholder height until the real one is known
+	 * @param picInfo
+	 * @return
 	 */
-	private void measureChild(View child) {
-		ViewGroup.LayoutParams childLayoutParams = getLayoutParams(child);
-		int childWidthSpec = ViewGroup.getChildMeasureSpec(mWidthMeasureSpec, getPaddingLeft() + getPaddingRight(), childLayoutParams.width);
+	private int getItemHeight(ComicSectionPicInfo picInfo) {
+		return picInfo.dstHeight > 0 ? picInfo.dstHeight : mEstimatedItemHeight;
+	}
 
+	/**
+	 * Scales a height given for the full content width to the width of a column, as items keep their aspect ratio
+	 * @param height
+	 * @return
+	 */
+	private int scaleToColumn(int height) {
+		int columnCount = mLayoutStrategy.getColumnCount();
+		if (columnCount <= 1) {
+			return height;
+		}
+		int contentWidth = getContentWidth();
+		return contentWidth > 0 ? (int) ((long) height * getColumnWidth() / contentWidth) : height / columnCount;
+	}
+
+	/**
+	 * Gets the vertical extent of the row made of the items in [rowStart, rowEnd), the divider below it included
+	 * @param rowStart
+	 * @param rowEnd
+	 * @return
+	 */
+	private int getRowExtent(int rowStart, int rowEnd) {
+		int rowHeight = 0;
+		for (int i = rowStart; i < rowEnd; i++) {
+			rowHeight = Math.max(rowHeight, scaleToColumn(getItemHeight((ComicSectionPicInfo) mAdapter.getItem(i))));
+		}
+		// The stitched slices are seamless
+		return isStitching() ? rowHeight : rowHeight + mDividerHeight;
+	}
+
+	/**
+	 * Gets the indexed heights of the adapter items, rebuilding them if the data set has changed.
+	 * Each row's extent is held by its first item, so the offset of any item is the offset of its row
+	 * @return
+	 */
+	private ItemHeightIndex getHeightIndex() {
+		if (mHeightIndexDirty) {
+			int itemCount = mAdapter != null ? mAdapter.getCount() : 0;
+			mHeightIndex.reset(itemCount);
+			for (int i = 0; i < itemCount; ) {
+				int rowEnd = mLayoutStrategy.getRowEnd(i, itemCount);
+				mHeightIndex.load(i, getRowExtent(i, rowEnd));
+				i = rowEnd;
+			}
+			mHeightIndex.build();
+			mHeightIndexDirty = false;
+		}
+		return mHeightIndex;
+	}
+
+	/**
+	 * Recomputes the absolute y position from the topmost child, which is where the indexed heights put it.
+	 * Used after items before the visible ones have been inserted, removed or reflowed
+	 */
+	private void reanchorToTopmostChild() {
+		if (getChildCount() == 0 || mAdapter == null) {
+			return;
+		}
+		int rowStart = mLayoutStrategy.getRowStart(mTopViewAdapterIndex);
+		int anchoredY = (int) getHeightIndex().offsetOf(rowStart) - mDisplayOffset;
+		int delta = anchoredY - mCurrentY;
+		mCurrentY += delta;
+		mNextY += delta;
+	}
+
+	/**
+	 * Delivers the real height of an item which has been laid out at its placeholder height. Must be called on the UI thread.
+	 * The layout is corrected in place: the topmost visible content stays where it is on the screen
+	 * @param adapterIndex
+	 * @param picInfo
+	 * @param height
+	 */
+	public void onItemHeightResolved(int adapterIndex, ComicSectionPicInfo picInfo, int height) {
+		if (mAdapter == null || height <= 0) {
+			return;
+		}
+		// The item has moved since the height was requested, so fall back to rebuilding the index
+		if (adapterIndex < 0 || adapterIndex >= mAdapter.getCount() || mAdapter.getItem(adapterIndex) != picInfo) {
+			picInfo.dstHeight = height;
+			mHeightIndexDirty = true;
+			requestLayout();
+			return;
+		}
+
+		int rowStart = mLayoutStrategy.getRowStart(adapterIndex);
+		int rowEnd = mLayoutStrategy.getRowEnd(adapterIndex, mAdapter.getCount());
+		int oldExtent = getRowExtent(rowStart, rowEnd);
+		picInfo.dstHeight = height;
+		int newExtent = getRowExtent(rowStart, rowEnd);
+
+		applyRowExtentChange(adapterIndex, getChild(adapterIndex), oldExtent, newExtent);
+	}
+
+	/**
+	 * Updates the indexed extent of an item's row and corrects the layout in place, keeping the topmost visible content
+	 * where it is on the screen
+	 * @param adapterIndex
+	 * @param child the attached child of the item, or null
+	 * @param oldExtent
+	 * @param newExtent
+	 */
+	private void applyRowExtentChange(int adapterIndex, View child, int oldExtent, int newExtent) {
+		int rowStart = mLayoutStrategy.getRowStart(adapterIndex);
+		int delta = newExtent - oldExtent;
+		if (!mHeightIndexDirty) {
+			mHeightIndex.set(rowStart, newExtent);
+		}
+
+		if (child != null) {
+			child.requestLayout();
+		}
+		if (delta == 0) {
+			return;
+		}
+
+		boolean aboveAnchor;
+		if (mTilesAttached) {
+			aboveAnchor = getHeightIndex().offsetOf(rowStart) < mCurrentY;
+		} else {
+			aboveAnchor = rowStart < mTopViewAdapterIndex || (child != null && child.getTop() < 0);
+		}
+		if (aboveAnchor) {
+			// The item is above the anchor, shift the absolute position so the visible content does not move
+			mCurrentY += delta;
+			mNextY += delta;
+			if (child != null) {
+				mDisplayOffset -= delta;
+			}
+		}
+		if (mMaxY != Integer.MAX_VALUE) {
+			mMaxY += delta;
+		}
+		requestLayout();
+	}
+
+	/**
+	 * Notifies that a single item has changed, e.g. its page has finished loading, without notifying the whole data set.
+	 * Only the attached child of the item is bound again, through {@link PartialBinder} when the adapter implements it,
+	 * otherwise through getView with the child as the view to convert. The child is measured again only if the item's
+	 * height has changed
+	 * @param adapterIndex
+	 * @param payload describes the change, passed to {@link PartialBinder#onBindPayload}
+	 */
+	public void notifyItemChanged(int adapterIndex, Object payload) {
+		if (mAdapter == null || adapterIndex < 0 || adapterIndex >= mAdapter.getCount()) {
+			return;
+		}
+		View child = getChild(adapterIndex);
+		if (child != null) {
+			boolean bound = mAdapter instanceof PartialBinder
+					&& ((PartialBinder) mAdapter).onBindPayload(adapterIndex, child, payload);
+			if (!bound) {
+				rebindChild(adapterIndex - mTopViewAdapterIndex);
+				child = getChild(adapterIndex);
+			}
+			child.invalidate();
+		} else {
+			invalidateSlice(adapterIndex);
+		}
+
+		if (mHeightIndexDirty) {
+			// The index is rebuilt on the next layout, which measures the children anyway
+			if (child != null) {
+				child.requestLayout();
+			}
+			return;
+		}
+		int rowStart = mLayoutStrategy.getRowStart(adapterIndex);
+		int oldExtent = mHeightIndex.get(rowStart);
+		int newExtent = getRowExtent(rowStart, mLayoutStrategy.getRowEnd(adapterIndex, mAdapter.getCount()));
+		if (oldExtent != newExtent) {
+			applyRowExtentChange(adapterIndex, child, oldExtent, newExtent);
+		}
+	}
+
+	/**
+	 * Sets how items are grouped into rows and placed within a row, e.g. several strips side by side or double page spreads.
+	 * The item at the top of the screen stays there
+	 * @param layoutStrategy
+	 */
+	public void setLayoutStrategy(ReaderLayoutStrategy layoutStrategy) {
+		if (layoutStrategy == null) {
+			layoutStrategy = ReaderLayoutStrategy.SINGLE_COLUMN;
+		}
+		if (mLayoutStrategy == layoutStrategy) {
+			return;
+		}
+		mLayoutStrategy = layoutStrategy;
+		mHeightIndexDirty = true;
+		if (getChildCount() > 0) {
+			requestJumpTo(mTopViewAdapterIndex, getTopmostRowOffset());
+		}
+		requestLayout();
+	}
+
+	/**
+	 * Gets the distance of the screen's top edge below the top edge of the topmost attached item
+	 * @return
+	 */
+	private int getTopmostRowOffset() {
+		if (mTilesAttached) {
+			return -mDisplayOffset;
+		}
+		return -getTopmostChild().getTop() + getPaddingTop();
+	}
+
+	public ReaderLayoutStrategy getLayoutStrategy() {
+		return mLayoutStrategy;
+	}
+
+	/**
+	 * Requests the next layout to lay the container out from scratch with the given item at the top of the screen,
+	 * without binding any item between the current position and that one
+	 * @param index
+	 * @param offset the distance of the screen's top edge below the item's top edge
+	 */
+	private void requestJumpTo(int index, int offset) {
+		mPendingJumpIndex = index;
+		mPendingJumpOffset = offset;
+		if (!mFlingTracker.isFinished()) {
+			mFlingTracker.endFling();
+		}
+		requestLayout();
+	}
+
+	/**
+	 * Recycles every child and lays the pending jump target out at the top of the screen
+	 */
+	private void layoutPendingJump() {
+		int itemCount = mAdapter.getCount();
+		int index = Math.max(0, Math.min(mPendingJumpIndex, itemCount - 1));
+		int rowStart = mLayoutStrategy.getRowStart(index);
+		mPendingJumpIndex = -1;
+
+		for (int i = getChildCount() - 1; i >= 0; i--) {
+			View child = getChildAt(i);
+			recycleView(mTopViewAdapterIndex + i, child);
+			removeViewInLayout(child);
+		}
+
+		// An empty attached range right before the row, so the bottom fill starts at it
+		mTopViewAdapterIndex = rowStart;
+		mBottomViewAdapterIndex = rowStart - 1;
+		if (rowStart == 0) {
+			mTopViewAdapterIndex = -1;
+		}
+		mDisplayOffset = -mPendingJumpOffset;
+		mCurrentY = (int) getHeightIndex().offsetOf(rowStart) + mPendingJumpOffset;
+		mNextY = mCurrentY;
+		mMaxY = Integer.MAX_VALUE;
+
+		fillListBottom(mDisplayOffset, 0);
+		positionChildren(0);
+
+		// The target row starts below the top of the screen, so fill the gap above it
+		if (getChildCount() > 0 && mDisplayOffset > 0) {
+			fillListTop(getRowBottom(0), 0);
+			positionChildren(0);
+		}
+	}
+
+	/**
+	 * If a view is currently being pressed, then unpress it
+	 */
+	private void unpressTouchedChild() {
+		if (mViewBeingTouched != null) {
+			mViewBeingTouched.setPressed(false);
+			mViewBeingTouched = null;
+			refreshDrawableState();
+		}
+		setPressed(false);
+	}
+
+	/**
+	 * Will re-initialize the ScrollReaderListView to remove all child views rendered and reset to initial configuration
+	 */
+	private void reset() {
+		recycleAllChildren();
+		resetState();
+		mLowResolutionChildren.clear();
+		if (mDecodeScheduler != null) {
+			mDecodeScheduler.cancelAll();
+		}
+		requestLayout();
+	}
+
+	/**
+	 * Interface definition for a callback to be invoked when the scroll state has changed
+	 */
+	public interface OnScrollStateChangedListener {
+		int SCROLL_STATE_IDLE = 0x1001;
+		int SCROLL_STATE_TOUCH_SCROLL = 0x1002;
+		int SCROLL_STATE_FLING = 0x1003;
+
+		void onScrollStateChanged(int scrollState);
+	}
+
+	/**
+	 * Sets a listener to be invoked when the scroll state changes
+	 * @param listener
+	 */
+	public void setOnScrollStateChangedListener(OnScrollStateChangedListener listener) {
+		mOnScrollStateChangedListener = listener;
+	}
+
+	/**
+	 * Sets a listener to be invoked when the page state changeds
+	 * @param listener
+	 */
+	public void setOnComicPageChangeListener(OnComicPageChangedListener listener) {
+		mPageChangedListener = listener;
+	}
+
+	/**
+	 * Sets a listener to be invoked when comic container flings
+	 * @param listener
+	 */
+	public void setOnComicFlingListener(OnComicFlingListener listener) {
+		mFlingListener = listener;
+	}
+
+	/**
+	 * Sets a listener to be invoked when touch state changed
+	 * @param listener
+	 */
+	public void setOnComicTouchListener(OnComicTouchListener listener) {
+		mTouchListener = listener;
+	}
+
+	/**
+	 * Update current scroll state
+	 * @param newScrollState
+	 */
+	private void setCurrentScrollState(int newScrollState) {
+		if (mCurrentScrollState != newScrollState && mOnScrollStateChangedListener != null) {
+			mOnScrollStateChangedListener.onScrollStateChanged(newScrollState);
+		}
+		mCurrentScrollState = newScrollState;
+		if (mFastScroller != null && newScrollState != OnScrollStateChangedListener.SCROLL_STATE_IDLE) {
+			mFastScroller.show();
+		}
+		// Drain the work held back while scrolling
+		if (mDecodeScheduler != null && newScrollState == OnScrollStateChangedListener.SCROLL_STATE_IDLE) {
+			mDecodeScheduler.dispatch();
+		}
+	}
+
+
+
+	/**
+	 * Sets a listener to be called when the ScrollReaderListView has been scrolled to a point where it is
+	 * running low on data
+	 * An example use case is wanting to auto download more data when the user
+	 * has scrolled to the point where only 10 items are left to be rendered off the bottom of the screen
+	 * @param listener
+	 * @param numberOfItemsLeftConsideredLow
+	 */
+	public void setRunningOutOfDataListener(RunningOutOfDataListener listener, int numberOfItemsLeftConsideredLow) {
+		mRunningOutOfDataListener = listener;
+		mRunningOutOfDataThreshold = numberOfItemsLeftConsideredLow;
+	}
+
+	public static interface RunningOutOfDataListener {
+		void onRunningOutOfData();
+	}
+
+	/**
+	 * Determins if we have meet the condition to notify the lowdata listener
+	 */
+	private void determineIfLowOnData() {
+		if (mRunningOutOfDataListener != null && mAdapter != null &&
+				mAdapter.getCount() - (mBottomViewAdapterIndex + 1) < mRunningOutOfDataThreshold) {
+			if (!mHasNotifiedRunningLowOnData) {
+				mHasNotifiedRunningLowOnData = true;
+				mRunningOutOfDataListener.onRunningOutOfData();
+			}
+		}
+	}
+
+	/**
+	 * Finds a child view that is contained within this view, given the adapter index
+	 * @param adapterIndex
+	 * @return
+	 */
+	private View getChild(int adapterIndex) {
+		// The tiles do not belong to any item
+		if (mTilesAttached) {
+			return null;
+		}
+		if (adapterIndex >= mTopViewAdapterIndex && adapterIndex <= mBottomViewAdapterIndex) {
+			return getChildAt(adapterIndex - mTopViewAdapterIndex);
+		}
+		return null;
+	}
+
+	/**
+	 * Will create and initialize a cache for the given number of different types of recyceld views to be used as needed
+	 * @param viewTypeCount
+	 */
+	private void initializeRecycledViewCache(int viewTypeCount) {
+		mRemovedViewsCache.clear();
+		for (int i = 0; i < viewTypeCount; i++) {
+			mRemovedViewsCache.add(new LinkedList<View>());
+		}
+	}
+
+	/**
+	 * Returns a recycled view from the cache that can be reused, or null if one is one is not available
+	 * @param adapterIndex
+	 * @return
+	 */
+	private View getRecycledView(int adapterIndex) {
+		int itemViewType = mAdapter.getItemViewType(adapterIndex);
+		View view = null;
+		if (isItemViewTypeValid(itemViewType)) {
+			view = mRemovedViewsCache.get(itemViewType).poll();
+		}
+		if (view == null && mSharedPool != null) {
+			view = mSharedPool.getView(mAdapter.getClass(), itemViewType);
+		}
+		return view;
+	}
+
+	/**
+	 * Adds the provided view to a recycled views cache
+	 * @param adapterIndex
+	 * @param view
+	 */
+	private void recycleView(int adapterIndex, View view) {
+		mLowResolutionChildren.remove(view);
+		// The child's pixel buffer goes back to the pool, so the next page with compatible dimensions decodes into it
+		if (mAdapter instanceof BitmapReleaser) {
+			Bitmap bitmap = ((BitmapReleaser) mAdapter).releaseBitmap(view);
+			if (bitmap != null) {
+				getBitmapPool().put(this, bitmap);
+			}
+		}
+		// The data may have changed under the child, it cannot be typed anymore
+		if (adapterIndex < 0 || adapterIndex >= mAdapter.getCount()) {
+			return;
+		}
+		int itemViewType = mAdapter.getItemViewType(adapterIndex);
+		Queue<View> cache = isItemViewTypeValid(itemViewType) ? mRemovedViewsCache.get(itemViewType) : null;
+		// Recycle into the container's own cache first, so its next bind reuses a warm view, and overflow into the shared pool
+		if (cache != null && (mSharedPool == null || cache.size() < MAX_LOCAL_VIEWS_PER_TYPE)) {
+			cache.offer(view);
+			return;
+		}
+		if (mSharedPool != null && mSharedPool.putView(mAdapter.getClass(), itemViewType, view)) {
+			return;
+		}
+		// The pool is full for the type, the container keeps the view rather than inflating another one later
+		if (cache != null) {
+			cache.offer(view);
+		}
+	}
+
+	/**
+	 * Moves every attached child into the recycled view cache, so the next layout binds them again instead of inflating
+	 */
+	private void recycleAllChildren() {
+		if (mTilesAttached) {
+			detachTiles();
+			return;
+		}
+		if (mAdapter != null) {
+			for (int i = 0; i < getChildCount(); i++) {
+				recycleView(mTopViewAdapterIndex + i, getChildAt(i));
+			}
+		}
+		removeAllViewsInLayout();
+	}
+
+	/**
+	 * Moves the views recycled into the container's own cache into the shared pool, so the other containers can reuse them
+	 * while this one is detached. The views the pool cannot hold stay cached
+	 */
+	private void releaseCachedViewsToPool() {
+		if (mAdapter == null) {
+			return;
+		}
+		for (int viewType = 0; viewType < mRemovedViewsCache.size(); viewType++) {
+			Queue<View> cache = mRemovedViewsCache.get(viewType);
+			while (!cache.isEmpty() && mSharedPool.putView(mAdapter.getClass(), viewType, cache.peek())) {
+				cache.poll();
+			}
+		}
+	}
+
+	private boolean isItemViewTypeValid(int itemViewType) {
+		return itemViewType < mRemovedViewsCache.size();
+	}
+
+	@Override
+	public BaseAdapter getAdapter() {
+		return mAdapter;
+	}
+
+	@Override
+	public void setAdapter(ListAdapter adapter) {
+		// Views recycled from the previous adapter are kept when the new one binds the same kind of views
+		boolean keepRecycledViews = false;
+		if (mAdapter != null) {
+			mAdapter.unregisterDataSetObserver(mAdapterDataObserver);
+			recycleAllChildren();
+			keepRecycledViews = adapter != null && adapter.getClass() == mAdapter.getClass()
+					&& adapter.getViewTypeCount() == mAdapter.getViewTypeCount();
+		}
+		mHeightIndexDirty = true;
+		if (adapter != null) {
+			mHasNotifiedRunningLowOnData = false;
+			mAdapter = (BaseAdapter)adapter;
+			mAdapter.registerDataSetObserver(mAdapterDataObserver);
+		}
+		if (!keepRecycledViews) {
+			initializeRecycledViewCache(mAdapter.getViewTypeCount());
+		}
+		if (mAccessibilityProvider != null) {
+			mAccessibilityProvider.reset();
+		}
+		reset();
+	}
+
+	@Override
+	public View getSelectedView() {
+		return getChild(currentlySelectedAdapterIndex);
+	}
+
+	@Override
+	public void setSelection(int position) {
+		if (mAdapter != null) {
+			int itemCount = mAdapter.getCount();
+			if (mReadingMode == READING_MODE_PAGED && position >= 0 && position < itemCount) {
+				mFlingTracker.endFling();
+				mCurrentPageStart = mLayoutStrategy.getRowStart(position);
+				mPageScrollX = 0;
+				onCurrentPageChanged();
+				requestLayout();
+				return;
+			}
+			if (position >= 0 && position < itemCount) {
+				currentlySelectedAdapterIndex = position;
+				scrollToPositionImmediately(position, 0);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Moves the item at the given index to the top of the screen, plus the given offset. A target among the attached rows is
+	 * scrolled to, any other target is laid out from scratch so the items in between are never bound
+	 * @param index
+	 * @param offset
+	 */
+	private void scrollToPositionImmediately(int index, int offset) {
+		int rowStart = mLayoutStrategy.getRowStart(index);
+		if (getChildCount() > 0 && rowStart >= mTopViewAdapterIndex && rowStart <= mBottomViewAdapterIndex) {
+			mNextY = (int) getHeightIndex().offsetOf(rowStart) + offset;
+			if (!mFlingTracker.isFinished()) {
+				mFlingTracker.endFling();
+			}
+			requestLayout();
+		} else {
+			requestJumpTo(rowStart, offset);
+		}
+	}
+
+	/**
+	 * Scrolls by a screen in scroll mode, or moves to the adjacent page in paged mode. The target is found in the indexed
+	 * heights and laid out through the jump path, so paging costs O(log n) and binds no item in between
+	 * @param direction 1 to page forward, -1 to page backward
+	 * @return whether there was anything to page to
+	 */
+	public boolean pageBy(int direction) {
+		if (mAdapter == null || mAdapter.getCount() == 0) {
+			return false;
+		}
+		if (mReadingMode == READING_MODE_PAGED) {
+			int pageStart = direction > 0 ? getNextPageStart() : getPreviousPageStart();
+			if (pageStart < 0) {
+				return false;
+			}
+			setSelection(pageStart);
+			return true;
+		}
+		long targetY = mNextY + direction * (long) (getRenderHeight() / currentScale);
+		return scrollToContentY(targetY);
+	}
+
+	/**
+	 * Scrolls the next row to the top of the screen, or the row at the top of the screen back to it, or the one above
+	 * @param direction 1 to step forward, -1 to step backward
+	 * @return whether there was anything to step to
+	 */
+	private boolean stepBy(int direction) {
+		if (mAdapter == null || mAdapter.getCount() == 0) {
+			return false;
+		}
+		if (mReadingMode == READING_MODE_PAGED) {
+			return pageBy(direction);
+		}
+		ItemHeightIndex heightIndex = getHeightIndex();
+		int rowStart = mLayoutStrategy.getRowStart(heightIndex.indexAt(mNextY));
+		if (direction > 0) {
+			return scrollToContentY(heightIndex.offsetOf(mLayoutStrategy.getRowEnd(rowStart, mAdapter.getCount())));
+		}
+		if (heightIndex.offsetOf(rowStart) < mNextY || rowStart == 0) {
+			return scrollToContentY(heightIndex.offsetOf(rowStart));
+		}
+		return scrollToContentY(heightIndex.offsetOf(mLayoutStrategy.getRowStart(rowStart - 1)));
+	}
+
+	/**
+	 * Scrolls the given absolute y position to the top of the screen, within the content
+	 * @param targetY
+	 * @return whether the position has changed
+	 */
+	private boolean scrollToContentY(long targetY) {
+		ItemHeightIndex heightIndex = getHeightIndex();
+		targetY = Math.max(0, Math.min(getScrollRange(), targetY));
+		if (targetY == mNextY) {
+			return false;
+		}
+		int rowStart = mLayoutStrategy.getRowStart(heightIndex.indexAt(targetY));
+		scrollToPositionImmediately(rowStart, (int) (targetY - heightIndex.offsetOf(rowStart)));
+		return true;
+	}
+
+	/**
+	 * Handles paging from a keyboard or a D-pad: page up and down, space, the arrows and home and end
+	 * @param keyCode
+	 * @param event
+	 * @return
+	 */
+	@Override
+	public boolean onKeyDown(int keyCode, KeyEvent event) {
+		if (mAdapter != null && mAdapter.getCount() > 0) {
+			switch (keyCode) {
+				case KeyEvent.KEYCODE_PAGE_DOWN:
+					if (pageBy(1)) {
+						return true;
+					}
+					break;
+				case KeyEvent.KEYCODE_PAGE_UP:
+					if (pageBy(-1)) {
+						return true;
+					}
+					break;
+				case KeyEvent.KEYCODE_SPACE:
+					if (pageBy(event.isShiftPressed() ? -1 : 1)) {
+						return true;
+					}
+					break;
+				case KeyEvent.KEYCODE_DPAD_DOWN:
+					if (stepBy(1)) {
+						return true;
+					}
+					break;
+				case KeyEvent.KEYCODE_DPAD_UP:
+					if (stepBy(-1)) {
+						return true;
+					}
+					break;
+				case KeyEvent.KEYCODE_DPAD_LEFT:
+				case KeyEvent.KEYCODE_DPAD_RIGHT:
+					if (mReadingMode == READING_MODE_PAGED) {
+						int pageStart = keyCode == KeyEvent.KEYCODE_DPAD_LEFT ? getLeftPageStart() : getRightPageStart();
+						if (pageStart >= 0) {
+							setSelection(pageStart);
+							return true;
+						}
+					}
+					break;
+				case KeyEvent.KEYCODE_MOVE_HOME:
+					setSelection(0);
+					return true;
+				case KeyEvent.KEYCODE_MOVE_END:
+					setSelection(mAdapter.getCount() - 1);
+					return true;
+				default:
+					break;
+			}
+		}
+		return super.onKeyDown(keyCode, event);
+	}
+
+	/**
+	 * Sets how items are described to accessibility services, by default as their position in the chapter
+	 * @param describer
+	 */
+	public void setItemDescriber(ItemDescriber describer) {
+		mItemDescriber = describer;
+	}
+
+	@Override
+	public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+		if (mAccessibilityProvider == null) {
+			mAccessibilityProvider = new ReaderAccessibilityProvider(this, new AccessibilityHost());
+		}
+		return mAccessibilityProvider;
+	}
+
+	@Override
+	public boolean dispatchHoverEvent(MotionEvent event) {
+		// Touch exploration reports the item under the finger, the provider only exists once a service has asked for it
+		if (mAccessibilityProvider != null && mAccessibilityProvider.onHover(event)) {
+			return true;
+		}
+		return super.dispatchHoverEvent(event);
+	}
+
+	@Override
+	public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+		super.onInitializeAccessibilityNodeInfo(info);
+		if (mAdapter == null || mAdapter.getCount() == 0) {
+			return;
+		}
+		info.setScrollable(true);
+		info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+		info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD);
+	}
+
+	@Override
+	public boolean performAccessibilityAction(int action, Bundle arguments) {
+		switch (action) {
+			case AccessibilityNodeInfo.ACTION_SCROLL_FORWARD:
+				return pageBy(1);
+			case AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD:
+				return pageBy(-1);
+			default:
+				return super.performAccessibilityAction(action, arguments);
+		}
+	}
+
+	/**
+	 * Enables the fast scroll thumb, which shows up while scrolling and can be dragged to scrub through the whole chapter
+	 * @param enabled
+	 */
+	public void setFastScrollEnabled(boolean enabled) {
+		if (enabled && mFastScroller == null) {
+			mFastScroller = new FastScroller();
+		} else if (!enabled && mFastScroller != null) {
+			removeCallbacks(mFastScroller);
+			mFastScroller = null;
+		}
+		invalidate();
+	}
+
+	public boolean isFastScrollEnabled() {
+		return mFastScroller != null;
+	}
+
+	/**
+	 * Sets a listener to be invoked while the user scrubs through the chapter
+	 * @param listener
+	 */
+	public void setOnScrubListener(OnScrubListener listener) {
+		mScrubListener = listener;
+	}
+
+	/**
+	 * Whether the user is scrubbing through the chapter. Adapters should bind a low resolution preview meanwhile,
+	 * the landing pages are bound again once scrubbing ends
+	 * @return
+	 */
+	public boolean isScrubbing() {
+		return mScrubbing;
+	}
+
+	/**
+	 * Gets the total distance the content can be scrolled in scroll mode
+	 * @return
+	 */
+	private long getScrollRange() {
+		if (mMaxY != Integer.MAX_VALUE) {
+			return mMaxY;
+		}
+		return getIndexedScrollRange();
+	}
+
+	/**
+	 * Gets the total distance the content can be scrolled as given by the indexed heights. The last row has no divider
+	 * after it, and the stitched slices have none at all
+	 * @return
+	 */
+	private long getIndexedScrollRange() {
+		long contentHeight = getHeightIndex().total() - (isStitching() ? 0 : mDividerHeight);
+		return Math.max(0, contentHeight - getRenderHeight());
+	}
+
+	/**
+	 * Gets how far the container has been scrolled through the whole adapter, from 0 to 1
+	 * @return
+	 */
+	public float getScrollFraction() {
+		if (mAdapter == null || mAdapter.getCount() == 0) {
+			return 0;
+		}
+		if (mReadingMode == READING_MODE_PAGED) {
+			return mAdapter.getCount() > 1 ? (float) mCurrentPageStart / (mAdapter.getCount() - 1) : 0;
+		}
+		long range = getScrollRange();
+		return range > 0 ? Math.max(0, Math.min(1, (float) mCurrentY / range)) : 0;
+	}
+
+	/**
+	 * Starts scrubbing through the chapter, see {@link #isScrubbing()}
+	 */
+	public void startScrub() {
+		if (!mScrubbing) {
+			mScrubbing = true;
+			mFlingTracker.endFling();
+			if (mScrubListener != null) {
+				mScrubListener.onScrubStart();
+			}
+		}
+	}
+
+	/**
+	 * Moves to the given fraction of the whole adapter. The target is found in the indexed heights and laid out directly,
+	 * so only the landing pages are bound
+	 * @param fraction from 0 to 1
+	 */
+	public void scrubTo(float fraction) {
+		if (mAdapter == null || mAdapter.getCount() == 0) {
+			return;
+		}
+		fraction = Math.max(0, Math.min(1, fraction));
+		int index;
+		if (mReadingMode == READING_MODE_PAGED) {
+			index = Math.round(fraction * (mAdapter.getCount() - 1));
+			setSelection(index);
+		} else {
+			ItemHeightIndex heightIndex = getHeightIndex();
+			long targetY = (long) (fraction * getScrollRange());
+			index = mLayoutStrategy.getRowStart(heightIndex.indexAt(targetY));
+			scrollToPositionImmediately(index, (int) (targetY - heightIndex.offsetOf(index)));
+		}
+		if (mScrubListener != null) {
+			mScrubListener.onScrub(index);
+		}
+	}
+
+	/**
+	 * Ends scrubbing and binds the landing pages again, so they are shown at full resolution
+	 */
+	public void endScrub() {
+		if (mScrubbing) {
+			mScrubbing = false;
+			rebindAttachedChildren();
+			if (mScrubListener != null) {
+				mScrubListener.onScrubEnd(currentlySelectedAdapterIndex);
+			}
+		}
+	}
+
+	/**
+	 * Binds every attached child again, passing the child itself as the view to convert
+	 */
+	private void rebindAttachedChildren() {
+		if (mTilesAttached) {
+			invalidateTiles();
+			return;
+		}
+		if (mAdapter == null) {
+			return;
+		}
+		for (int i = 0; i < getChildCount(); i++) {
+			rebindChild(i);
+		}
+		mLowResolutionChildren.clear();
+		requestLayout();
+	}
+
+	/**
+	 * Binds the child at the given position again, replacing it if the adapter returns another view
+	 * @param childIndex
+	 */
+	private void rebindChild(int childIndex) {
+		View child = getChildAt(childIndex);
+		int adapterIndex = mTopViewAdapterIndex + childIndex;
+		View newChild = mAdapter.getView(adapterIndex, child, this);
+		ComicSectionPicInfo picInfo = (ComicSectionPicInfo) mAdapter.getItem(adapterIndex);
+		if (newChild != child) {
+			int top = mSlots.getTop(childIndex);
+			recycleView(adapterIndex, child);
+			removeViewInLayout(child);
+			addViewInLayout(newChild, childIndex, getLayoutParams(newChild), true);
+			measureChild(newChild, picInfo);
+			// Keeps the replaced child's place until the next layout positions the new one
+			mSlots.insert(childIndex, adapterIndex, picInfo, top, newChild.getMeasuredHeight());
+		} else {
+			mSlots.setPicInfo(childIndex, picInfo);
+		}
+	}
+
+	/**
+	 * Gets a view for the given adapter index from the adapter, utilizing a cached view if one is available.
+	 * Tracks whether it has been bound at low resolution, so it is bound again once the fling slows down
+	 * @param adapterIndex
+	 * @return
+	 */
+	private View obtainView(int adapterIndex) {
+		boolean lowResolution = isLowResolutionBinding();
+		View recycled = getRecycledView(adapterIndex);
+		View child = mAdapter.getView(adapterIndex, recycled, this);
+		if (mReplayProbe != null) {
+			mReplayProbe.onViewObtained(recycled, child);
+		}
+		if (lowResolution) {
+			mLowResolutionChildren.add(child);
+			mLowResolutionStats.mLowResolutionBinds++;
+		} else {
+			mLowResolutionStats.mFullResolutionBinds++;
+		}
+		return child;
+	}
+
+	/**
+	 * Sets the fling velocity above which new children are bound at low resolution, as returned by {@link #getCurrentVelocity()}.
+	 * Adapters check {@link #isLowResolutionBinding()} in getView to bind a cached thumbnail or a placeholder instead of
+	 * decoding the full image, the children are bound again at full resolution when the fling slows down or ends
+	 * @param pixelsPerMillisecond 0 to always bind at full resolution
+	 */
+	public void setLowResolutionVelocity(int pixelsPerMillisecond) {
+		mLowResolutionVelocity = pixelsPerMillisecond;
+		if (!isLowResolutionBinding()) {
+			upgradeLowResolutionChildren();
+		}
+	}
+
+	public int getLowResolutionVelocity() {
+		return mLowResolutionVelocity;
+	}
+
+	/**
+	 * Whether the views being bound should show a low resolution preview, either because a fling is faster than
+	 * the low resolution velocity or because the user is scrubbing through the chapter
+	 * @return
+	 */
+	public boolean isLowResolutionBinding() {
+		if (mScrubbing) {
+			return true;
+		}
+		return mLowResolutionVelocity > 0 && !mFlingTracker.isFinished()
+				&& Math.abs(mFlingTracker.getCurrentVelocity()) >= mLowResolutionVelocity;
+	}
+
+	/**
+	 * Binds the children bound at low resolution again, at full resolution
+	 */
+	private void upgradeLowResolutionChildren() {
+		if (mLowResolutionChildren.isEmpty() || mAdapter == null) {
+			return;
+		}
+		for (int i = 0; i < getChildCount(); i++) {
+			if (mLowResolutionChildren.contains(getChildAt(i))) {
+				rebindChild(i);
+				mLowResolutionStats.mUpgradedBinds++;
+			}
+		}
+		mLowResolutionChildren.clear();
+		requestLayout();
+	}
+
+	/**
+	 * Shares a pool of recycled views and bitmaps with other containers. Views the container's own cache cannot hold are
+	 * recycled into the shared pool, along with the whole cache once the container is detached, and taken from it when
+	 * the container's own cache has none. Adapters can take bitmaps from {@link #getSharedPool()}
+	 * @param pool
+	 */
+	public void setSharedPool(SharedReaderPool pool) {
+		if (mSharedPool != null) {
+			mSharedPool.detach(this);
+		}
+		mSharedPool = pool;
+		if (mSharedPool != null && getWindowToken() != null) {
+			mSharedPool.attach(this);
+		}
+	}
+
+	public SharedReaderPool getSharedPool() {
+		return mSharedPool;
+	}
+
+	/**
+	 * Gets the pool the pixel buffers of recycled children go back to, shared with the other containers if there is a shared pool.
+	 * Adapters implementing {@link BitmapReleaser} should take the buffer to decode a page into from it
+	 * @return
+	 */
+	public BitmapBufferPool getBitmapPool() {
+		if (mSharedPool != null) {
+			return mSharedPool.getBitmapPool();
+		}
+		if (mBitmapPool == null) {
+			mBitmapPool = new BitmapBufferPool(Runtime.getRuntime().maxMemory() / DEFAULT_BITMAP_POOL_FRACTION);
+			mBitmapPool.attach(this);
+		}
+		return mBitmapPool;
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		if (mSharedPool != null) {
+			mSharedPool.attach(this);
+		}
+		if (mTelemetry != null) {
+			mTelemetry.start();
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		if (mSharedPool != null) {
+			releaseCachedViewsToPool();
+			mSharedPool.detach(this);
+		}
+		if (mTelemetry != null) {
+			// Nothing is read while detached, so the visits end here
+			mTelemetry.publish(SystemClock.uptimeMillis(), -1, -1, currentScale, mAdapter);
+			mTelemetry.stop();
+		}
+	}
+
+	/**
+	 * Streams the visible range to the given telemetry, which aggregates the reading time of every item on its own thread.
+	 * Its consumer runs while the container is attached to a window
+	 * @param telemetry
+	 */
+	public void setVisibilityTelemetry(VisibilityTelemetry telemetry) {
+		if (mTelemetry != null) {
+			mTelemetry.stop();
+		}
+		mTelemetry = telemetry;
+		if (mTelemetry != null && getWindowToken() != null) {
+			mTelemetry.start();
+			publishVisibleRange();
+		}
+	}
+
+	/**
+	 * Publishes the visible range to the telemetry, which only takes it when it has changed, and tells accessibility services
+	 * when it has changed, as the items exposed to them change along with it
+	 */
+	private void publishVisibleRange() {
+		if (mAdapter == null) {
+			return;
+		}
+		int first = getVisibleRangeStart();
+		int last = getVisibleRangeEnd();
+		if (mTelemetry != null) {
+			mTelemetry.publish(SystemClock.uptimeMillis(), first, last, currentScale, mAdapter);
+		}
+		if (mAccessibilityProvider != null && (first != mAccessibleRangeStart || last != mAccessibleRangeEnd)) {
+			mAccessibleRangeStart = first;
+			mAccessibleRangeEnd = last;
+			sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED);
+		}
+	}
+
+	/**
+	 * Gets the adapter index of the first visible item, the first of the current page in paged mode
+	 * @return -1 if nothing is laid out
+	 */
+	private int getVisibleRangeStart() {
+		if (mAdapter == null || getChildCount() == 0) {
+			return -1;
+		}
+		return mReadingMode == READING_MODE_PAGED ? mCurrentPageStart : mTopViewAdapterIndex;
+	}
+
+	private int getVisibleRangeEnd() {
+		if (mAdapter == null || getChildCount() == 0) {
+			return -1;
+		}
+		if (mReadingMode == READING_MODE_PAGED) {
+			return mLayoutStrategy.getRowEnd(mCurrentPageStart, mAdapter.getCount()) - 1;
+		}
+		return mBottomViewAdapterIndex;
+	}
+
+	@Override
+	public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+		super.onInitializeAccessibilityEvent(event);
+		if (mAdapter == null) {
+			return;
+		}
+		// Which of the items are exposed, so services refresh the virtual children
+		event.setScrollable(mAdapter.getCount() > 0);
+		event.setItemCount(mAdapter.getCount());
+		event.setFromIndex(getVisibleRangeStart());
+		event.setToIndex(getVisibleRangeEnd());
+	}
+
+	/**
+	 * Gets the scheduler adapters submit their decode and upload work to from getView, so it is held back while scrolling
+	 * and drained closest to the screen first once scrolling stops
+	 * @return
+	 */
+	public DecodeScheduler getDecodeScheduler() {
+		if (mDecodeScheduler == null) {
+			mDecodeScheduler = new DecodeScheduler();
+			mDecodeScheduler.attachHost(new DecodeSchedulerHost());
+		}
+		return mDecodeScheduler;
+	}
+
+	/**
+	 * Sets the recording touch events are added to, see {@link ScrollReplay#record(ScrollReaderListView)}
+	 * @param recording null to stop recording
+	 */
+	void setReplayRecording(ScrollReplay recording) {
+		mReplayRecording = recording;
+	}
+
+	/**
+	 * Sets the probe measuring each frame's layout time, view creations and recycle pool misses while a recording is replayed
+	 * @param probe null to stop measuring
+	 */
+	void setReplayProbe(ScrollReplay.FrameProbe probe) {
+		mReplayProbe = probe;
+	}
+
+	/**
+	 * Gets how many binds have been done at each resolution, to measure the decode work low resolution binding saves
+	 * @return
+	 */
+	public LowResolutionStats getLowResolutionStats() {
+		return mLowResolutionStats;
+	}
+
+	/**
+	 * Simple convenience method for determining if this index is the last index in the adapter
+	 * @param index
+	 * @return
+	 */
+	private boolean isLastItemInAdapter(int index) {
+		return index == mAdapter.getCount() - 1;
+	}
+
+
+	/**
+	 * Remove unnecessary views which against the specified rules
+	 */
+	private void removeUnnecessaryViews(final int dy) {
+		// Loop removing the top most row, until that row is the first one outside the screen
+		while (getChildCount() > 0 && getRowBottom(0) + getSubTopmostRowHeight() + dy <= 0) {
+			int rowChildCount = getRowChildCount(0);
+			int rowHeight = getRowHeight(0, rowChildCount);
+			mDisplayOffset += isLastItemInAdapter(mTopViewAdapterIndex + rowChildCount - 1) ? rowHeight : mDividerHeight + rowHeight;
+
+			for (int i = 0; i < rowChildCount; i++) {
+				View child = getTopmostChild();
+
+				// Add the removed view to the cache
+				recycleView(mTopViewAdapterIndex, child);
+
+				// Actuallly remove the view
+				removeViewInLayout(child);
+
+				// Keep track of the adapter index of the top most child
+				mTopViewAdapterIndex++;
+			}
+		}
+
+		// Loop removing the bottom most row, until that row is the first one outside the screen
+		while (getChildCount() > 0 && mSlots.getTop(getBottommostRowStart()) + dy - getSubBottommostRowHeight() >= getHeight()) {
+			int rowStart = getBottommostRowStart();
+			for (int i = getChildCount() - 1; i >= rowStart; i--) {
+				View child = getChildAt(i);
+				recycleView(mBottomViewAdapterIndex, child);
+				removeViewInLayout(child);
+				mBottomViewAdapterIndex--;
+			}
+		}
+	}
+
+	/**
+	 * Adds children views to the top and bottom of the current views until the screen is full
+	 * @param dy
+	 */
+	private void fillList(final int dy) {
+		// Get the bottommost child and determine its bottom edge
+		int topEdge = 0;
+		int bottomEdge = 0;
+
+		if (getChildCount() > 0) {
+			topEdge = mSlots.getTop(getBottommostRowStart());
+		}
+
+		// Add new children views to the bottom, until the view is the first off the screen
+		fillListBottom(topEdge, dy);
+
+		// Get the topmost row and determine its bottom edge
+		if (getChildCount() > 0) {
+			bottomEdge = getRowBottom(0);
+		}
+
+		// Add new children views to the top, until the view is the first off the screen
+		fillListTop(bottomEdge, dy);
+
+		// Check if we are close enough to either end of the chapter window to page in the adjacent chapter
+		schedulePrefetchCheck();
+
+		// The attached items may have changed, so may have the work allowed to run
+		if (mDecodeScheduler != null) {
+			mDecodeScheduler.dispatch();
+		}
+	}
+
+
+	private void fillListBottom(int topEdge, final int dy) {
+
+		// Loop adding rows to the bottom until the row is the first one that off the screen
+		while (topEdge + dy  < getHeight() && mBottomViewAdapterIndex + 1 < mAdapter.getCount()) {
+			int rowStart = mBottomViewAdapterIndex + 1;
+			int rowEnd = mLayoutStrategy.getRowEnd(rowStart, mAdapter.getCount());
+			int rowHeight = 0;
+			while (mBottomViewAdapterIndex + 1 < rowEnd) {
+				mBottomViewAdapterIndex++;
+
+				// Get the view from the adapter, utilizing a cached a view if one is available
+				View child = obtainView(mBottomViewAdapterIndex);
+				addAndMeasureChild(child, mBottomViewAdapterIndex, INSERT_AT_END_OF_LIST);
+				rowHeight = Math.max(rowHeight, child.getMeasuredHeight());
+			}
+
+			// If mTopViewAdapterIndex < 0 then this is the first time a row is being added, and top == bottom
+			if (mTopViewAdapterIndex < 0) {
+				mTopViewAdapterIndex = rowStart;
+				topEdge = 0;
+			} else {
+				// If first row, then no divider to the top of it, otherwise add the space for the divider height
+				topEdge += (rowStart == 0 ? 0 : mDividerHeight) + rowHeight;
+			}
+
+			// Check if we are running low on data so we can tell listenrs to go get more
+			determineIfLowOnData();
+		}
+	}
+
+	private void fillListTop(int bottomEdge, final int dy) {
+
+		// Loop adding rows to the top until the row is the first one that off the screen
+		while (bottomEdge + dy > 0 && mTopViewAdapterIndex >= 1) {
+			int rowStart = mLayoutStrategy.getRowStart(mTopViewAdapterIndex - 1);
+			int rowHeight = 0;
+			while (mTopViewAdapterIndex > rowStart) {
+				mTopViewAdapterIndex--;
+				View child = obtainView(mTopViewAdapterIndex);
+				addAndMeasureChild(child, mTopViewAdapterIndex, INSERT_AT_START_OF_LIST);
+				rowHeight = Math.max(rowHeight, child.getMeasuredHeight());
+			}
+
+			// If first row, then no divider of the top of it
+			bottomEdge -= mTopViewAdapterIndex == 0 ? rowHeight : mDividerHeight + rowHeight;
+
+			mDisplayOffset -= mDividerHeight + rowHeight;
+		}
+	}
+
+	/**
+	 * Adds a child to this viewgroup and measure it so it renders the correct size
+	 * @param child
+	 * @param adapterIndex
+	 * @param viewPos
+	 */
+	private void addAndMeasureChild(final View child, int adapterIndex, int viewPos) {
+		LayoutParams params = getLayoutParams(child);
+		addViewInLayout(child, viewPos, params, true);
+		ComicSectionPicInfo picInfo = (ComicSectionPicInfo) mAdapter.getItem(adapterIndex);
+		measureChild(child, picInfo);
+		// Until it is positioned the child keeps the bounds it had, a recycled child those of its previous item
+		mSlots.insert(viewPos == INSERT_AT_END_OF_LIST ? mSlots.size() : viewPos, adapterIndex, picInfo,
+				child.getTop(), child.getBottom() - child.getTop());
+	}
+
+	@Override
+	public void removeViewInLayout(View view) {
+		int slot = indexOfChild(view);
+		if (slot >= 0 && slot < mSlots.size()) {
+			mSlots.remove(slot);
+		}
+		super.removeViewInLayout(view);
+	}
+
+	@Override
+	public void removeAllViewsInLayout() {
+		mSlots.clear();
+		super.removeAllViewsInLayout();
+	}
+
+	/**
+	 * Gets the placeholder height the child of the item must be laid out at, or 0 if the height of the item is known
+	 * @param picInfo
+	 * @return
+	 */
+	private int getPlaceholderHeight(ComicSectionPicInfo picInfo) {
+		if (picInfo != null && picInfo.dstHeight <= 0) {
+			return scaleToColumn(mEstimatedItemHeight);
+		}
+		return 0;
+	}
+
+	/**
+	 * measure the provided child
+	 * @param child
+	 * @param picInfo the item it is bound to
+	 */
+	private void measureChild(View child, ComicSectionPicInfo picInfo) {
+		ViewGroup.LayoutParams childLayoutParams = getLayoutParams(child);
+		int childWidthSpec;
+		if (mLayoutStrategy.getColumnCount() > 1) {
+			childWidthSpec = MeasureSpec.makeMeasureSpec(getColumnWidth(), MeasureSpec.EXACTLY);
+		} else {
+			childWidthSpec = ViewGroup.getChildMeasureSpec(mWidthMeasureSpec, getPaddingLeft() + getPaddingRight(), childLayoutParams.width);
+		}
+
+		int placeholderHeight = getPlaceholderHeight(picInfo);
 		int childHeightSpec;
-		if (childLayoutParams.height > 0) {
-			childHeightSpec = MeasureSpec.makeMeasureSpec(childLayoutParams.height, MeasureSpec.EXACTLY);
+		if (placeholderHeight > 0) {
+			childHeightSpec = MeasureSpec.makeMeasureSpec(placeholderHeight, MeasureSpec.EXACTLY);
+		} else if (childLayoutParams.height > 0) {
+			childHeightSpec = MeasureSpec.makeMeasureSpec(scaleToColumn(childLayoutParams.height), MeasureSpec.EXACTLY);
 		} else {
 			childHeightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
 		}
-		child.measure(childWidthSpec, childHeightSpec);
+		child.measure(childWidthSpec, childHeightSpec);
+	}
+
+
+	/**
+	 * Gets a child's layout params, defaults if not available
+	 * @param child
+	 * @return
+	 */
+	private ViewGroup.LayoutParams getLayoutParams(View child) {
+		ViewGroup.LayoutParams layoutParams = child.getLayoutParams();
+		if (layoutParams == null) {
+			// Since this is a vertical list view default to matching the parents width, and wrapping the height
+			layoutParams = new ViewGroup.LayoutParams(LayoutParams.MATCH_PARENT, layoutParams.WRAP_CONTENT);
+		}
+
+		return layoutParams;
+	}
+
+	/**
+	 * Loops through each child and positions them onto the screen
+	 * @param dy
+	 */
+	private void positionChildren(final int dy) {
+		isFirstVisibleItem = true;
+		int childCount = getChildCount();
+
+		if (childCount > 0) {
+			mDisplayOffset += dy;
+			int topOffset = mDisplayOffset;
+			int columnWidth = getColumnWidth();
+
+			// Loop each row, a row is as high as its highest child
+			int rowStart = 0;
+			int rowChildCount = 0;
+			int rowHeight = 0;
+			for (int i = 0; i < childCount; i++) {
+				if (i == rowStart + rowChildCount) {
+					if (i > 0) {
+						topOffset += rowHeight + mDividerHeight;
+					}
+					rowStart = i;
+					rowChildCount = getRowChildCount(i);
+					for (int j = rowStart; j < rowStart + rowChildCount; j++) {
+						measureChildIfChanged(j);
+					}
+					rowHeight = getRowHeight(rowStart, rowChildCount);
+				}
+				View child = getChildAt(i);
+
+				int left = getPaddingLeft() + mLayoutStrategy.getItemLeft(mTopViewAdapterIndex + i, mTopViewAdapterIndex + rowStart, rowChildCount, columnWidth);
+				int top = topOffset + getPaddingTop();
+				int right = left + child.getMeasuredWidth();
+				int bottom = top + child.getMeasuredHeight();
+
+				mSlots.setBounds(i, top, bottom - top);
+				onChildPositioned(i, child, top, bottom, dy);
+				child.layout(left, top, right, bottom);
+			}
+		}
+	}
+
+	/**
+	 * Tracks the first visible item and the current page as a child is positioned
+	 * @param childIndex
+	 * @param child
+	 * @param top
+	 * @param bottom
+	 * @param dy
+	 */
+	private void onChildPositioned(int childIndex, View child, int top, int bottom, int dy) {
+		onItemPositioned(mSlots.getAdapterIndex(childIndex), mSlots.getPicInfo(childIndex), top, bottom,
+				child.getMeasuredHeight(), dy);
+	}
+
+	/**
+	 * Tracks the first visible item and the current page as an item is positioned, by its child or on the stitched canvas
+	 * @param position
+	 * @param picInfo
+	 * @param top
+	 * @param bottom
+	 * @param height
+	 * @param dy
+	 */
+	private void onItemPositioned(int position, ComicSectionPicInfo picInfo, int top, int bottom, int height, int dy) {
+		mReaderHelper.checkFirstVisibleItemChanged(picInfo, top, bottom, position, dy);
+
+		if (top < getHeight() && bottom >= getHeight()) {
+			int tempIndex = 0;
+			if (getHeight() - top >= height * currentScale * 0.66) {
+				tempIndex = position;
+
+			} else {
+				if (position > 0) {
+					tempIndex = position - 1;
+				}
+			}
+			if (tempIndex != currentlySelectedAdapterIndex) {
+				if (mPageChangedListener != null) {
+					mPageChangedListener.onPageChanged(mReaderHelper.getPicInfo(tempIndex));
+				}
+				currentlySelectedAdapterIndex = tempIndex;
+			}
+		}
+	}
+
+	/**
+	 * Whether scrolling by the given distance leaves the same children attached, in which case they can simply be offset
+	 * instead of laying the whole container out again
+	 * @param dy
+	 * @return
+	 */
+	private boolean canOffsetChildren(int dy) {
+		if (getChildCount() == 0 || mTilesAttached || mDataChanged || mPendingJumpIndex >= 0 || mRestoreY != null
+				|| mReadingMode != READING_MODE_SCROLL || isLayoutRequested()) {
+			return false;
+		}
+		// Out of range positions are clipped by a layout
+		if (mNextY < 0 || mNextY > mMaxY) {
+			return false;
+		}
+		// The same conditions as removeUnnecessaryViews and fillList
+		if (getRowBottom(0) + getSubTopmostRowHeight() + dy <= 0) {
+			return false;
+		}
+		int bottommostRowTop = mSlots.getTop(getBottommostRowStart());
+		if (bottommostRowTop + dy - getSubBottommostRowHeight() >= getHeight()) {
+			return false;
+		}
+		if (bottommostRowTop + dy < getHeight() && mBottomViewAdapterIndex + 1 < mAdapter.getCount()) {
+			return false;
+		}
+		return !(getRowBottom(0) + dy > 0 && mTopViewAdapterIndex >= 1);
+	}
+
+	/**
+	 * Moves every child by the given distance without laying them out again
+	 * @param dy
+	 */
+	private void offsetChildren(int dy) {
+		isFirstVisibleItem = true;
+		mDisplayOffset += dy;
+		mSlots.offset(dy);
+		for (int i = 0; i < getChildCount(); i++) {
+			View child = getChildAt(i);
+			child.offsetTopAndBottom(dy);
+			onChildPositioned(i, child, mSlots.getTop(i), mSlots.getBottom(i), dy);
+		}
+	}
+
+	/**
+	 * Requests the chapter window to be trimmed and its prefetch to be checked once the layout is done. A loader may deliver
+	 * the chapter synchronously, so the window must not change within a layout pass
+	 */
+	private void schedulePrefetchCheck() {
+		if (mChapterWindow != null && !mPrefetchCheckPosted) {
+			mPrefetchCheckPosted = true;
+			post(mPrefetchChecker);
+		}
+	}
+
+	private final Runnable mPrefetchChecker = new Runnable() {
+		@Override
+		public void run() {
+			mPrefetchCheckPosted = false;
+			if (mChapterWindow != null && getChildCount() > 0) {
+				// A chapter kept resident by its attached views is evicted once they are gone
+				mChapterWindow.trimResidentChapters();
+				mChapterWindow.checkPrefetch(mTopViewAdapterIndex, mBottomViewAdapterIndex);
+			}
+		}
+	};
+
+	/**
+	 * Requests the scroll accumulated in mNextY to be applied on the next frame. Every source adds to mNextY, so however
+	 * many events come in during a frame the container is moved once
+	 */
+	private void scheduleScrollApply() {
+		if (!mScrollApplyPosted) {
+			mScrollApplyPosted = true;
+			postOnFrame(mScrollApplier);
+		}
+	}
+
+	/**
+	 * Applies the scroll accumulated in mNextY, by offsetting the children when they do not change, or by a layout otherwise.
+	 * Called directly by sources already running on a frame
+	 */
+	private void applyPendingScroll() {
+		int dy = mCurrentY - mNextY;
+		if (dy == 0 && !mDataChanged) {
+			return;
+		}
+		boolean moveTiles = canMoveTiles();
+		if (moveTiles || canOffsetChildren(dy)) {
+			long start = mReplayProbe != null ? System.nanoTime() : 0;
+			if (moveTiles) {
+				layoutStitched(false);
+			} else {
+				offsetChildren(dy);
+				mCurrentY = mNextY;
+			}
+			invalidate();
+			if (mReplayProbe != null) {
+				mReplayProbe.onLayout(System.nanoTime() - start);
+			}
+			publishVisibleRange();
+		} else {
+			requestLayout();
+		}
+	}
+
+	private final Runnable mScrollApplier = new Runnable() {
+		@Override
+		public void run() {
+			mScrollApplyPosted = false;
+			applyPendingScroll();
+		}
+	};
+
+
+	/**
+	 * Measure the child If child's PFLAG_FORCE_LAYOUT flag has set.Usually, when the content of child changed,
+	 * the PFLAG_FORCE_LAYOUT will be set.
+	 * @param childIndex
+	 */
+	private void measureChildIfChanged(int childIndex) {
+		View child = getChildAt(childIndex);
+		boolean needMeasure = child.isLayoutRequested();
+
+		if (needMeasure) {
+			ViewGroup.LayoutParams p = child.getLayoutParams();
+			if (p == null) {
+				p = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+			}
+			int childWidthSpec;
+			if (mLayoutStrategy.getColumnCount() > 1) {
+				childWidthSpec = MeasureSpec.makeMeasureSpec(getColumnWidth(), MeasureSpec.EXACTLY);
+			} else {
+				childWidthSpec = ViewGroup.getChildMeasureSpec(mWidthMeasureSpec, 0, p.width);
+			}
+
+			int lpHeight = p.height;
+			int placeholderHeight = getPlaceholderHeight(mSlots.getPicInfo(childIndex));
+			int childHeightSpec;
+			if (placeholderHeight > 0) {
+				childHeightSpec = MeasureSpec.makeMeasureSpec(placeholderHeight, MeasureSpec.EXACTLY);
+			}
+			else if (lpHeight > 0)
+			{
+				childHeightSpec = MeasureSpec.makeMeasureSpec(scaleToColumn(lpHeight), MeasureSpec.EXACTLY);
+			}
+			else
+			{
+				childHeightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+			}
+			try {
+				child.measure(childWidthSpec, childHeightSpec);
+			} catch (StringIndexOutOfBoundsException e) {
+
+			}catch(Exception e){
+			}
+		}
+	}
+
+	/**
+	 * Determine the Max Y position. This is the farthest that the user can scroll the screen, Until the last adapter item has been
+	 * laid out it is impossible to calculate ; once that has has occured this will perform the calculation, and if necessary force a
+	 * recraw and relayout this view
+	 * @return
+	 */
+	private boolean determinMaxY() {
+		if (isLastItemInAdapter(mBottomViewAdapterIndex)) {
+			if (getChildCount() > 0) {
+				int oldMaxY = mMaxY;
+
+				mMaxY = mCurrentY + (getContentBottom() - getPaddingTop() - getRenderHeight());
+
+				// Handle the case where the views do not fill at least 1 screen
+				if (mMaxY < 0) {
+					mMaxY = 0;
+				}
+
+				if (mMaxY != oldMaxY)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Switches between the vertical scroll mode and the horizontal paged mode. The current page and every attached view
+	 * around it are kept, so switching does not rebind the page being read
+	 * @param readingMode {@link #READING_MODE_SCROLL} or {@link #READING_MODE_PAGED}
+	 */
+	public void setReadingMode(int readingMode) {
+		if (mReadingMode == readingMode) {
+			return;
+		}
+		mFlingTracker.endFling();
+		mReadingMode = readingMode;
+		if (mStitchMode) {
+			// The slices are stitched in scroll mode only, where they have no divider
+			mHeightIndexDirty = true;
+		}
+		// The new mode starts unzoomed, the zoom of the old one must not carry over through the engine or currentScale
+		removeCallbacks(mZoomFlingRunnable);
+		mGestureEngine.stopFling();
+		removeCallbacks(mZoomAnimationRunnable);
+		mZoomAnimator.cancel();
+		currentMatrix.reset();
+		savedMatrix.reset();
+		currentScale = 1;
+		mGestureEngine.setTransform(1, 0, 0);
+
+		if (readingMode == READING_MODE_PAGED) {
+			mCurrentPageStart = mLayoutStrategy.getRowStart(Math.max(0, currentlySelectedAdapterIndex));
+			mPageScrollX = 0;
+		} else if (getChildCount() > 0 && mAdapter != null) {
+			// Continue scrolling with the current page at the top of the screen, above the pages attached before it
+			ItemHeightIndex heightIndex = getHeightIndex();
+			int topRowStart = mLayoutStrategy.getRowStart(mTopViewAdapterIndex);
+			mDisplayOffset = -(int) (heightIndex.offsetOf(mCurrentPageStart) - heightIndex.offsetOf(topRowStart));
+			mCurrentY = (int) heightIndex.offsetOf(mCurrentPageStart);
+			mNextY = mCurrentY;
+			mMaxY = Integer.MAX_VALUE;
+			positionChildren(0);
+		}
+		requestLayout();
+		invalidate();
+	}
+
+	public int getReadingMode() {
+		return mReadingMode;
+	}
+
+	/**
+	 * Sets whether pages are ordered from right to left in paged mode
+	 * @param rightToLeft
+	 */
+	public void setPagedRightToLeft(boolean rightToLeft) {
+		if (mPagedRightToLeft != rightToLeft) {
+			mPagedRightToLeft = rightToLeft;
+			mPageScrollX = -mPageScrollX;
+			requestLayout();
+		}
+	}
+
+	/**
+	 * Gets the adapter index of the first item of the page on the right of the current one, or -1 if none
+	 * @return
+	 */
+	private int getRightPageStart() {
+		return mPagedRightToLeft ? getPreviousPageStart() : getNextPageStart();
+	}
+
+	private int getLeftPageStart() {
+		return mPagedRightToLeft ? getNextPageStart() : getPreviousPageStart();
+	}
+
+	private int getNextPageStart() {
+		int nextPageStart = mLayoutStrategy.getRowEnd(mCurrentPageStart, mAdapter.getCount());
+		return nextPageStart < mAdapter.getCount() ? nextPageStart : -1;
+	}
+
+	private int getPreviousPageStart() {
+		return mCurrentPageStart > 0 ? mLayoutStrategy.getRowStart(mCurrentPageStart - 1) : -1;
+	}
+
+	/**
+	 * Drags the pages horizontally in paged mode, stopping at the first and the last page
+	 * @param deltaX
+	 */
+	private void dragPage(int deltaX) {
+		int width = getWidth();
+		int pageScrollX = mPageScrollX + deltaX;
+		if (pageScrollX > 0 && getRightPageStart() < 0) {
+			pageScrollX = 0;
+			if (mPagedRightToLeft) {
+				onReachHeader();
+			} else {
+				onReachFooter();
+			}
+		} else if (pageScrollX < 0 && getLeftPageStart() < 0) {
+			pageScrollX = 0;
+			if (mPagedRightToLeft) {
+				onReachFooter();
+			} else {
+				onReachHeader();
+			}
+		} else {
+			headerStatus = HEADER_STATUS_IDLE;
+			footerStatus = FOOTER_STATUS_IDLE;
+		}
+		setPageScrollX(Math.max(-width, Math.min(width, pageScrollX)));
+	}
+
+	/**
+	 * Moves the pages horizontally to the given scroll position by offsetting them, without a layout. The pages on either
+	 * side of the current one are attached already, the container is laid out again once the page changes or settles
+	 * @param pageScrollX
+	 */
+	private void setPageScrollX(int pageScrollX) {
+		int dx = mPageScrollX - pageScrollX;
+		if (dx == 0) {
+			return;
+		}
+		mPageScrollX = pageScrollX;
+		for (int i = 0; i < getChildCount(); i++) {
+			getChildAt(i).offsetLeftAndRight(dx);
+		}
+		invalidate();
+	}
+
+	/**
+	 * Snaps to the nearest page when the finger is lifted in paged mode, or to the next page in the fling direction
+	 * @param velocityX
+	 */
+	private void settlePage(int velocityX) {
+		int width = getWidth();
+		int targetScrollX = 0;
+		if (Math.abs(velocityX) > mMinimumVelocity) {
+			targetScrollX = velocityX < 0 ? width : -width;
+		} else if (mPageScrollX > width / 2) {
+			targetScrollX = width;
+		} else if (mPageScrollX < -width / 2) {
+			targetScrollX = -width;
+		}
+		if ((targetScrollX > 0 && getRightPageStart() < 0) || (targetScrollX < 0 && getLeftPageStart() < 0)) {
+			targetScrollX = 0;
+		}
+		if (targetScrollX == mPageScrollX) {
+			onPageSnapped(targetScrollX);
+			setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
+			return;
+		}
+		setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_FLING);
+		int duration = Math.max(1, PAGE_SNAP_DURATION * Math.abs(targetScrollX - mPageScrollX) / Math.max(width, 1));
+		mFlingTracker.startPageSnap(mPageScrollX, targetScrollX, duration);
 	}
 
-
 	/**
-	 * Gets a child's layout params, defaults if not available
-	 * @param child
-	 * @return
+	 * Called when the snap animation has reached its target, which makes the page it has brought in the current one
+	 * @param targetScrollX
 	 */
-	private ViewGroup.LayoutParams getLayoutParams(View child) {
-		ViewGroup.LayoutParams layoutParams = child.getLayoutParams();
-		if (layoutParams == null) {
-			// Since this is a vertical list view default to matching the parents width, and wrapping the height
-			layoutParams = new ViewGroup.LayoutParams(LayoutParams.MATCH_PARENT, layoutParams.WRAP_CONTENT);
+	private void onPageSnapped(int targetScrollX) {
+		int pageStart = targetScrollX > 0 ? getRightPageStart() : targetScrollX < 0 ? getLeftPageStart() : -1;
+		mPageScrollX = 0;
+		if (pageStart >= 0) {
+			mCurrentPageStart = pageStart;
+			onCurrentPageChanged();
 		}
+		requestLayout();
+	}
 
-		return layoutParams;
+	private void onCurrentPageChanged() {
+		if (currentlySelectedAdapterIndex != mCurrentPageStart) {
+			currentlySelectedAdapterIndex = mCurrentPageStart;
+			if (mPageChangedListener != null) {
+				mPageChangedListener.onPageChanged(mReaderHelper.getPicInfo(mCurrentPageStart));
+			}
+		}
 	}
 
 	/**
-	 * Loops through each child and positions them onto the screen
-	 * @param dy
+	 * Lays out the current page and the pages on each side of it horizontally, reusing every attached view which is still needed
 	 */
-	private void positionChildren(final int dy) {
-		isFirstVisibleItem = true;
-		int childCount = getChildCount();
-
-		if (childCount > 0) {
-			mDisplayOffset += dy;
-			int topOffset = mDisplayOffset;
-
-			// Loop each child view
-			for (int i = 0; i < childCount; i++) {
+	private void layoutPaged() {
+		int itemCount = mAdapter.getCount();
+		if (itemCount == 0) {
+			return;
+		}
+		mCurrentPageStart = mLayoutStrategy.getRowStart(Math.max(0, Math.min(mCurrentPageStart, itemCount - 1)));
+		int previousPageStart = getPreviousPageStart();
+		int nextPageStart = getNextPageStart();
+		int first = previousPageStart >= 0 ? previousPageStart : mCurrentPageStart;
+		int last = (nextPageStart >= 0 ? mLayoutStrategy.getRowEnd(nextPageStart, itemCount) : mLayoutStrategy.getRowEnd(mCurrentPageStart, itemCount)) - 1;
+
+		// Nothing attached is needed anymore, so start from an empty range
+		if (getChildCount() == 0 || mBottomViewAdapterIndex < first || mTopViewAdapterIndex > last) {
+			for (int i = getChildCount() - 1; i >= 0; i--) {
 				View child = getChildAt(i);
+				recycleView(mTopViewAdapterIndex + i, child);
+				removeViewInLayout(child);
+			}
+			mTopViewAdapterIndex = first;
+			mBottomViewAdapterIndex = first - 1;
+		}
 
-				measureChildIfChanged(child);
-
-				int left = getPaddingLeft();
-				int top = topOffset + getPaddingTop();
-				int right = left + child.getMeasuredWidth();
-				int bottom = top + child.getMeasuredHeight();
-
-				int position = ((ScrollReaderHelper.ReaderHolder) child.getTag()).adapterIndex;
-
-				mReaderHelper.checkFirstVisibleItemChanged(((ScrollReaderHelper.ReaderHolder) child.getTag()).picInfo, top, bottom, position, dy);
+		while (getChildCount() > 0 && mTopViewAdapterIndex < first) {
+			View child = getTopmostChild();
+			recycleView(mTopViewAdapterIndex, child);
+			removeViewInLayout(child);
+			mTopViewAdapterIndex++;
+		}
+		while (getChildCount() > 0 && mBottomViewAdapterIndex > last) {
+			View child = getBottommostChild();
+			recycleView(mBottomViewAdapterIndex, child);
+			removeViewInLayout(child);
+			mBottomViewAdapterIndex--;
+		}
+		while (mTopViewAdapterIndex > first) {
+			mTopViewAdapterIndex--;
+			addAndMeasureChild(obtainView(mTopViewAdapterIndex), mTopViewAdapterIndex, INSERT_AT_START_OF_LIST);
+		}
+		while (mBottomViewAdapterIndex < last) {
+			mBottomViewAdapterIndex++;
+			addAndMeasureChild(obtainView(mBottomViewAdapterIndex), mBottomViewAdapterIndex, INSERT_AT_END_OF_LIST);
+		}
 
-				if (top < getHeight() && bottom >= getHeight()) {
-					int tempIndex = 0;
-					if (getHeight() - top >= child.getMeasuredHeight() * currentScale * 0.66) {
-						tempIndex = position;
+		int width = getWidth();
+		int columnWidth = getColumnWidth();
+		int currentPageEnd = mLayoutStrategy.getRowEnd(mCurrentPageStart, itemCount);
+		int childCount = getChildCount();
+		for (int i = 0; i < childCount; ) {
+			int rowChildCount = getRowChildCount(i);
+			int rowStart = mTopViewAdapterIndex + i;
+			for (int j = i; j < i + rowChildCount; j++) {
+				measureChildIfChanged(j);
+			}
+			int rowHeight = getRowHeight(i, rowChildCount);
 
-					} else {
-						if (position > 0) {
-							tempIndex = position - 1;
-						}
-					}
-					if (tempIndex != currentlySelectedAdapterIndex) {
-						if (mPageChangedListener != null) {
-							mPageChangedListener.onPageChanged(mReaderHelper.getPicInfo(tempIndex));
-						}
-						currentlySelectedAdapterIndex = tempIndex;
-					}
-				}
-				child.layout(left, top, right, bottom);
+			// The page before the current one is on its left, unless pages are ordered from right to left
+			int slot = rowStart < mCurrentPageStart ? -1 : rowStart >= currentPageEnd ? 1 : 0;
+			if (mPagedRightToLeft) {
+				slot = -slot;
+			}
+			int pageLeft = slot * width - mPageScrollX + getPaddingLeft();
+			int top = getPaddingTop() + Math.max(0, (getRenderHeight() - rowHeight) / 2);
 
-				topOffset += child.getMeasuredHeight() + mDividerHeight;
+			for (int j = i; j < i + rowChildCount; j++) {
+				View child = getChildAt(j);
+				int left = pageLeft + mLayoutStrategy.getItemLeft(mTopViewAdapterIndex + j, rowStart, rowChildCount, columnWidth);
+				int bottom = top + child.getMeasuredHeight();
+				mSlots.setBounds(j, top, bottom - top);
+				mReaderHelper.checkFirstVisibleItemChanged(mSlots.getPicInfo(j), top, bottom, mSlots.getAdapterIndex(j), 0);
+				child.layout(left, top, left + child.getMeasuredWidth(), bottom);
 			}
+			i += rowChildCount;
 		}
 	}
 
-
 	/**
-	 * Measure the child If child's PFLAG_FORCE_LAYOUT flag has set.Usually, when the content of child changed,
-	 * the PFLAG_FORCE_LAYOUT will be set.
-	 * @param child
+	 * Smoothly scrolls the container by the given distance in screen pixels, driven frame by frame like a fling
+	 * @param dy
+	 * @param durationMs
 	 */
-	private void measureChildIfChanged(View child) {
-		boolean needMeasure = child.isLayoutRequested();
-
-		if (needMeasure) {
-			ViewGroup.LayoutParams p = child.getLayoutParams();
-			if (p == null) {
-				p = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-			}
-			int childWidthSpec = ViewGroup.getChildMeasureSpec(mWidthMeasureSpec, 0, p.width);
-
-			int lpHeight = p.height;
-			int childHeightSpec;
-			if (lpHeight > 0)
-			{
-				childHeightSpec = MeasureSpec.makeMeasureSpec(lpHeight, MeasureSpec.EXACTLY);
-			}
-			else
-			{
-				childHeightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
-			}
-			try {
-				child.measure(childWidthSpec, childHeightSpec);
-			} catch (StringIndexOutOfBoundsException e) {
-
-			}catch(Exception e){
-			}
+	public void smoothScrollBy(int dy, int durationMs) {
+		if (mAdapter == null || dy == 0) {
+			return;
 		}
+		setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_FLING);
+		mFlingTracker.startScroll(dy, durationMs);
 	}
 
 	/**
-	 * Determine the Max Y position. This is the farthest that the user can scroll the screen, Until the last adapter item has been
-	 * laid out it is impossible to calculate ; once that has has occured this will perform the calculation, and if necessary force a
-	 * recraw and relayout this view
-	 * @return
+	 * Smoothly scrolls the container so the item at the given index is at the top of the screen, plus the given offset
+	 * @param index
+	 * @param offset
 	 */
-	private boolean determinMaxY() {
-		if (isLastItemInAdapter(mBottomViewAdapterIndex)) {
-			View bottomView = getBottommostChild();
+	public void smoothScrollToPosition(int index, int offset) {
+		if (mAdapter == null || index < 0 || index >= mAdapter.getCount()) {
+			return;
+		}
+		currentMatrix.getValues(curMatrixArr);
+		long targetY = getHeightIndex().offsetOf(index) + offset;
+		int dy = (int) ((targetY - mNextY) * curMatrixArr[Matrix.MSCALE_Y]);
+		int height = Math.max(getHeight(), 1);
+		int duration = (int) Math.min(MAX_SMOOTH_SCROLL_DURATION, Math.max(MIN_SMOOTH_SCROLL_DURATION, (long) Math.abs(dy) * MIN_SMOOTH_SCROLL_DURATION / height));
+		smoothScrollBy(dy, duration);
+	}
 
-			if (bottomView != null) {
-				int oldMaxY = mMaxY;
+	/**
+	 * Starts scrolling the container at a constant speed until {@link #stopAutoScroll()} is called or the user touches it
+	 * @param pixelsPerSecond screen pixels per second, negative to scroll towards the header
+	 */
+	public void startAutoScroll(int pixelsPerSecond) {
+		if (mAdapter == null || pixelsPerSecond == 0) {
+			return;
+		}
+		setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_FLING);
+		mFlingTracker.startAutoScroll(pixelsPerSecond);
+	}
 
-				mMaxY = mCurrentY + (bottomView.getBottom() - getPaddingTop() - getRenderHeight());
+	public void stopAutoScroll() {
+		if (isAutoScrolling()) {
+			mFlingTracker.endFling();
+		}
+	}
 
-				// Handle the case where the views do not fill at least 1 screen
-				if (mMaxY < 0) {
-					mMaxY = 0;
-				}
+	public boolean isAutoScrolling() {
+		return mFlingTracker.isAutoScrolling();
+	}
 
-				if (mMaxY != oldMaxY)
-					return true;
-			}
+	/**
+	 * Posts the runnable to run on the next animation frame, or as soon as possible before JELLY_BEAN
+	 * @param runnable
+	 */
+	private void postOnFrame(Runnable runnable) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			postOnAnimation(runnable);
+		} else {
+			post(runnable);
 		}
-		return false;
 	}
 
 	/**
@@ -828,99 +3051,108 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	}
 
 	/**
-	 * Gets the height size of child that is sub-topmost on the screen
+	 * Gets the number of children in the row which the child at the given index belongs to, from that child on
+	 * @param childIndex
 	 * @return
 	 */
-	private int getSubTopmostChildHeight() {
-		if (getChildCount() > 1) {
-			return getChildAt(1).getMeasuredHeight();
-		}
-		return 0;
+	private int getRowChildCount(int childIndex) {
+		int adapterIndex = mTopViewAdapterIndex + childIndex;
+		int rowEnd = mLayoutStrategy.getRowEnd(adapterIndex, mAdapter.getCount());
+		return Math.max(1, Math.min(rowEnd - adapterIndex, getChildCount() - childIndex));
 	}
 
 	/**
-	 * Gets the height size of child that is sub-bottommost on the screen
+	 * Gets the height of a row, which is the measured height of its highest child
+	 * @param childIndex
+	 * @param rowChildCount
 	 * @return
 	 */
-	private int getSubBottommostChildHeight() {
-		if (getChildCount() > 1) {
-			return getChildAt(getChildCount() - 2).getMeasuredHeight();
+	private int getRowHeight(int childIndex, int rowChildCount) {
+		int rowHeight = 0;
+		for (int i = childIndex; i < childIndex + rowChildCount; i++) {
+			rowHeight = Math.max(rowHeight, getChildAt(i).getMeasuredHeight());
 		}
-		return 0;
+		return rowHeight;
 	}
 
 	/**
-	 * Init velocity tracker which is used in fling gesture
+	 * Gets the bottom edge of the row starting at the given child as it has been laid out
+	 * @param childIndex
+	 * @return
 	 */
-	private void initVelocityTrackerIfNotExists() {
-		if (mVelocityTracker == null) {
-			mVelocityTracker = VelocityTracker.obtain();
+	private int getRowBottom(int childIndex) {
+		int rowChildCount = getRowChildCount(childIndex);
+		int rowBottom = Integer.MIN_VALUE;
+		for (int i = childIndex; i < childIndex + rowChildCount; i++) {
+			rowBottom = Math.max(rowBottom, mSlots.getBottom(i));
 		}
+		return rowBottom;
 	}
 
 	/**
-	 * Get the distance within two fingers
-	 * @param event
+	 * Gets the child index of the first child of the bottommost row
+	 * @return
+	 */
+	private int getBottommostRowStart() {
+		return Math.max(0, mLayoutStrategy.getRowStart(mBottomViewAdapterIndex) - mTopViewAdapterIndex);
+	}
+
+	/**
+	 * Gets the bottom edge of the laid out content, which is the bottom of the bottommost row
+	 * @return
+	 */
+	private int getContentBottom() {
+		return getRowBottom(getBottommostRowStart());
+	}
+
+	/**
+	 * Gets the height of the row that is sub-topmost on the screen
 	 * @return
 	 */
-	private float getDistance(MotionEvent event) {
-		try {
-			float x = event.getX(0) - event.getX(1);
-			float y = event.getY(0) - event.getY(1);
-			return FloatMath.sqrt(x * x + y * y);
-		} catch (Exception e) {
-			e.printStackTrace();
+	private int getSubTopmostRowHeight() {
+		int rowChildCount = getRowChildCount(0);
+		if (getChildCount() > rowChildCount) {
+			return getRowHeight(rowChildCount, getRowChildCount(rowChildCount));
 		}
 		return 0;
 	}
 
 	/**
-	 * Calculating the middle point cordinate between two fingers in scaling
-	 * @param event
+	 * Gets the height of the row that is sub-bottommost on the screen
 	 * @return
 	 */
-	private PointF midPoint(MotionEvent event) {
-		PointF point = new PointF();
-		float x = event.getX(0) + event.getX(1);
-		float y = event.getY(0) + event.getY(1);
-		point.set(x / 2, y / 2);
+	private int getSubBottommostRowHeight() {
+		int rowStart = getBottommostRowStart();
+		if (rowStart > 0) {
+			int previousRowStart = Math.max(0, mLayoutStrategy.getRowStart(mTopViewAdapterIndex + rowStart - 1) - mTopViewAdapterIndex);
+			return getRowHeight(previousRowStart, rowStart - previousRowStart);
+		}
+		return 0;
+	}
 
-		return point;
+	/**
+	 * Gets the width in px available to the children. (padding removed)
+	 * @return
+	 */
+	private int getContentWidth() {
+		return MeasureSpec.getSize(mWidthMeasureSpec) - getPaddingLeft() - getPaddingRight();
 	}
 
 	/**
-	 * Check the matrix whether is cross-border, If so, fix it
-	 * @param matrix
-	 * @param matrixArr Fixed matrix
+	 * Gets the width of a column of the current layout strategy
+	 * @return
 	 */
-	private void checkAndFixZoomMatrix(Matrix matrix, float[] matrixArr) {
-		matrix.getValues(matrixArr);
-		RectF rect = new RectF(0, getTopmostChild().getTop(), getWidth(), getBottommostChild().getBottom());
-		matrix.mapRect(rect);
-		if (getTopmostChild().getTop() + matrixArr[Matrix.MTRANS_Y]/matrixArr[Matrix.MSCALE_Y] >= 0) {
-			matrixArr[Matrix.MTRANS_Y] = -getTopmostChild().getTop() * matrixArr[Matrix.MSCALE_Y];
-		}
-		int marginBottom = getBottommostChild().getBottom() - getPaddingTop() - getRenderHeight();
-		if ( getBottommostChild().getBottom() - rect.bottom >= marginBottom) {
-			matrixArr[Matrix.MTRANS_Y] += (getBottommostChild().getBottom() - rect.bottom - marginBottom) ;
-		}
-		matrix.setValues(matrixArr);
+	private int getColumnWidth() {
+		return getContentWidth() / mLayoutStrategy.getColumnCount();
 	}
 
 	/**
-	 * Check the scale factor whether has exceeded the MIN/MAX value, If so, fix it
-	 * @param currentScale
-	 * @return Fixed scale factor
+	 * Init velocity tracker which is used in fling gesture
 	 */
-	private float checkAndFixScaleFactor(float currentScale){
-		currentMatrix.getValues(curMatrixArr);
-		float targetScaleFactor = curMatrixArr[Matrix.MSCALE_X] * currentScale;
-		if (targetScaleFactor < MIN_SCALE) {
-			currentScale = MIN_SCALE / curMatrixArr[Matrix.MSCALE_X];
-		} else if (targetScaleFactor > MAX_SCALE) {
-			currentScale = MAX_SCALE / curMatrixArr[Matrix.MSCALE_X];
+	private void initVelocityTrackerIfNotExists() {
+		if (mVelocityTracker == null) {
+			mVelocityTracker = VelocityTracker.obtain();
 		}
-		return currentScale;
 	}
 
 	/**
@@ -939,38 +3171,6 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 		matrix.setValues(matrixArr);
 	}
 
-	/**
-	 * Draw rebound animation when in zoomin mode
-	 * @param canvas
-	 */
-	private void drawReboundAnim(Canvas canvas) {
-		long currentTime = System.currentTimeMillis();
-		if (currentTime - animationStartTime < ANIM_DURATION) {
-			// still in animation
-			currentMatrix.getValues(curMatrixArr);
-			targetMatrix.getValues(targetMatrixArr);
-			float percent = (float) (currentTime - animationStartTime) / (float) ANIM_DURATION;
-			if (percent < 0.0f) {
-				percent = 0.0f;
-			} else if (percent > 1.0f) {
-				percent = 1.0f;
-			}
-			for (int i = 0; i < 9; i++) {
-				transMatrixArr[i] = curMatrixArr[i] + (targetMatrixArr[i] - curMatrixArr[i]) * percent;
-			}
-			transitionMatrix.setValues(transMatrixArr);
-			canvas.setMatrix(transitionMatrix);
-			invalidate();
-		} else {
-			// Animation ends
-			animationStartTime = -1L;
-			canvas.setMatrix(targetMatrix);
-			currentMatrix.set(targetMatrix);
-			currentMatrix.getValues(curMatrixArr);
-			currentScale = curMatrixArr[Matrix.MSCALE_Y];
-		}
-	}
-
 	@Override
 	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
 		boolean more = super.drawChild(canvas, child, drawingTime);
@@ -979,8 +3179,93 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 
 	private boolean shouldToggleBar =true;
 
+	/**
+	 * Scrolls by a distance which may not be a whole number of pixels, keeping the fraction for the next scroll.
+	 * A position set directly leaves at most a stale fraction below a pixel, which cannot accumulate
+	 * @param dy
+	 */
+	private void scrollNextYBy(float dy) {
+		float nextY = mNextY + mNextYRemainder + dy;
+		mNextY = (int) Math.floor(nextY);
+		mNextYRemainder = nextY - mNextY;
+	}
+
+	/**
+	 * Enables resampling the drag to the frame time, so the content moves evenly whatever the touch sampling rate
+	 * @param enabled
+	 */
+	public void setTouchResamplingEnabled(boolean enabled) {
+		mGestureEngine.setResamplingEnabled(enabled);
+	}
+
+	/**
+	 * Gets the delay between touch samples and the moment the drag applies them, in milliseconds
+	 * @return
+	 */
+	public ReaderGestureEngine.LatencyStats getDragLatencyStats() {
+		return mGestureEngine.getLatencyStats();
+	}
+
+	/**
+	 * Applies the resampled drag once per frame while samples are waiting
+	 */
+	private final Runnable mResampleRunnable = new Runnable() {
+		@Override
+		public void run() {
+			mResamplePosted = false;
+			mInFrameCallback = true;
+			mGestureEngine.onFrame(AnimationUtils.currentAnimationTimeMillis());
+			mInFrameCallback = false;
+			requestResampleFrame();
+		}
+	};
+
+	private void requestResampleFrame() {
+		if (!mResamplePosted && mGestureEngine.hasPendingResample()) {
+			mResamplePosted = true;
+			postOnFrame(mResampleRunnable);
+		}
+	}
+
+	/**
+	 * Passes the current transform to the gesture engine, it may have been changed by a fling or the rebound animation
+	 */
+	private void syncGestureEngine() {
+		currentMatrix.getValues(curMatrixArr);
+		mGestureEngine.setViewportSize(getWidth(), getHeight());
+		mGestureEngine.setTransform(curMatrixArr[Matrix.MSCALE_X], curMatrixArr[Matrix.MTRANS_X], curMatrixArr[Matrix.MTRANS_Y]);
+	}
+
+	/**
+	 * Passes every sample of a move to the gesture engine, the historical ones batched since the last event first
+	 * @param event
+	 */
+	private void dispatchMoveToGestureEngine(MotionEvent event) {
+		final int pointerCount = event.getPointerCount();
+		final boolean twoPointers = pointerCount >= 2;
+		final int historySize = event.getHistorySize();
+		for (int h = 0; h < historySize; h++) {
+			mGestureEngine.onMove(event.getHistoricalEventTime(h), pointerCount,
+					event.getHistoricalX(0, h), event.getHistoricalY(0, h),
+					twoPointers ? event.getHistoricalX(1, h) : 0, twoPointers ? event.getHistoricalY(1, h) : 0);
+		}
+		mGestureEngine.onMove(event.getEventTime(), pointerCount, event.getX(0), event.getY(0),
+				twoPointers ? event.getX(1) : 0, twoPointers ? event.getY(1) : 0);
+		if (mGestureEngine.isResamplingEnabled()) {
+			requestResampleFrame();
+		} else if (mGestureEngine.isDragging()) {
+			mGestureEngine.getLatencyStats().record(SystemClock.uptimeMillis() - event.getEventTime());
+		}
+	}
+
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
+		if (mReplayRecording != null) {
+			mReplayRecording.recordMotionEvent(event);
+		}
+		if (mFastScroller != null && mFastScroller.onTouchEvent(event)) {
+			return true;
+		}
 		initVelocityTrackerIfNotExists();
 		mVelocityTracker.addMovement(event);
 
@@ -999,6 +3284,19 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 				savedMatrix.set(currentMatrix);
 				mTouchSlopDetected = false;
 
+				removeCallbacks(mZoomFlingRunnable);
+				// A finger catches the content where it is while it springs back
+				removeCallbacks(mOverscrollRunnable);
+				mOverscroll.hold();
+				// As well as while it zooms, the zoom settles where it has been caught
+				if (mZoomAnimator.isRunning()) {
+					removeCallbacks(mZoomAnimationRunnable);
+					mZoomAnimator.cancel();
+					onZoomSettledAt();
+				}
+				syncGestureEngine();
+				mGestureEngine.onDown(event.getEventTime(), event.getX(), event.getY());
+
 				if (mFlingTracker != null && !mFlingTracker.isFinished()) {
 					final ViewParent parent = getParent();
 					if (parent != null) {
@@ -1012,55 +3310,51 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 				break;
 			}
 			case MotionEvent.ACTION_MOVE: {
-				if (mTouchMode == TOUCH_MODE_DRAG) {
-					int deltaY = (int) (mLastPoint.y - event.getY());
-					int deltaX = (int) (mLastPoint.x - event.getX());
-					if (Math.abs(event.getY() - mStartPoint.y) > mTouchSlop) {
-						float fixedDeltaY = deltaY / curMatrixArr[Matrix.MSCALE_Y];
-						if (deltaY != 0) {
-							setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_TOUCH_SCROLL);
-							unpressTouchedChild();
-							mNextY += fixedDeltaY;
-							requestLayout();
-						}
-						checkReachHeader(fixedDeltaY);
-						checkReachFooter(fixedDeltaY);
+				if (mTouchMode == TOUCH_MODE_DRAG && mReadingMode == READING_MODE_PAGED && currentScale <= 1) {
+					// Pages are dragged horizontally, vertical movement is ignored
+					if (Math.abs(event.getX() - mStartPoint.x) > mTouchSlop) {
+						setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_TOUCH_SCROLL);
+						unpressTouchedChild();
+						dragPage((int) (mLastPoint.x - event.getX()));
 					}
-
-					currentMatrix.postTranslate(-deltaX, 0);
-					checkMoveMatrix(currentMatrix, curMatrixArr);
-					invalidate();
-
 					mLastPoint.set(event.getX(), event.getY());
-				} else if (mTouchMode == TOUCH_MODE_ZOOM) {
-					float newDistance = getDistance(event);
-					if (newDistance > FINGER_DISTANCE_THRESHOLD) {
-						currentMatrix.set(savedMatrix);
-						float scale = newDistance / oldDistance;
-						scale = checkAndFixScaleFactor(scale);
-						currentMatrix.preScale(scale, scale, getWidth()/2, middlePoint.y);
-						checkAndFixZoomMatrix(currentMatrix, curMatrixArr);
-						invalidate();
-					}
+				} else if (mTouchMode == TOUCH_MODE_DRAG || mTouchMode == TOUCH_MODE_ZOOM) {
+					// Pan and pinch both go through the gesture engine, which scrolls the list and moves the zoomed viewport
+					dispatchMoveToGestureEngine(event);
+					mLastPoint.set(event.getX(), event.getY());
 				}
 				break;
 			}
 			case MotionEvent.ACTION_UP: {
 				if (mTouchMode == TOUCH_MODE_ZOOM) {
-					if (currentScale < 1) {
-						animationStartTime = System.currentTimeMillis();
-						targetMatrix.reset();
-					} else {
+					mTouchMode = TOUCH_MODE_NONE;
+					mGestureEngine.onUp(event.getEventTime());
+					if (!finishPinch()) {
 						checkMoveMatrix(currentMatrix, curMatrixArr);
 					}
-
 					invalidate();
 				} else {
 					mTouchMode = TOUCH_MODE_NONE;
+					mGestureEngine.onUp(event.getEventTime());
 					mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
 					final int initalVelocityX = (int) mVelocityTracker.getXVelocity();
 					final int initialVelocityY = (int) mVelocityTracker.getYVelocity();
-					if (Math.abs(initialVelocityY) > mMinimumVelocity) {
+					if (mReadingMode == READING_MODE_PAGED && currentScale <= 1) {
+						// Only an unzoomed page has been dragged, a zoomed one has been panned and flings like one
+						settlePage(initalVelocityX);
+					} else if (mOverscroll.isStretched()) {
+						// Released past an end, the content springs back instead of flinging
+						releaseOverscroll();
+						setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
+					} else if (mZoomAnimator.isRunning()) {
+						// The pinch carries on as a zoom, the finger left after it does not fling
+						setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
+					} else if (currentScale > 1 && Math.hypot(mGestureEngine.getVelocityX(), mGestureEngine.getVelocityY()) > mMinimumVelocity) {
+						// While zoomed the fling moves the viewport horizontally as well as the list vertically
+						setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_FLING);
+						mGestureEngine.startFling(mGestureEngine.getVelocityX(), mGestureEngine.getVelocityY(), AnimationUtils.currentAnimationTimeMillis());
+						postOnFrame(mZoomFlingRunnable);
+					} else if (mReadingMode == READING_MODE_SCROLL && Math.abs(initialVelocityY) > mMinimumVelocity) {
 						setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_FLING);
 						mFlingTracker.start(-initalVelocityX, -initialVelocityY);
 					} else {
@@ -1075,11 +3369,12 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			}
 			case MotionEvent.ACTION_POINTER_DOWN:{
 				mVelocityTracker.addMovement(event);
-				oldDistance = getDistance(event);
-				if (oldDistance > FINGER_DISTANCE_THRESHOLD) {
-					savedMatrix.set(currentMatrix);
-					middlePoint = midPoint(event);
-					mTouchMode = TOUCH_MODE_ZOOM;
+				if (mTouchMode != TOUCH_MODE_NONE && event.getPointerCount() >= 2) {
+					mGestureEngine.onPointerDown(event.getEventTime(), event.getX(0), event.getY(0), event.getX(1), event.getY(1));
+					if (mGestureEngine.isPinching()) {
+						savedMatrix.set(currentMatrix);
+						mTouchMode = TOUCH_MODE_ZOOM;
+					}
 				}
 				break;
 
@@ -1087,14 +3382,22 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			case MotionEvent.ACTION_POINTER_UP:
 			case MotionEvent.ACTION_CANCEL:
 				if (mTouchMode == TOUCH_MODE_ZOOM) {
-					if (currentScale < 1) {
-						animationStartTime = System.currentTimeMillis();
-						targetMatrix.reset();
-						invalidate();
+					if ((action & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_POINTER_UP) {
+						int remainingIndex = event.getActionIndex() == 0 ? 1 : 0;
+						mGestureEngine.onPointerUp(event.getEventTime(), event.getX(remainingIndex), event.getY(remainingIndex));
+					} else {
+						mGestureEngine.onCancel();
 					}
+					// The remaining finger keeps panning the zoomed content, unless the zoom carries on
+					boolean zoomAnimating = finishPinch();
+					mTouchMode = zoomAnimating || (action & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_CANCEL ? TOUCH_MODE_NONE : TOUCH_MODE_DRAG;
 				} else {
 					mTouchMode = TOUCH_MODE_NONE;
 				}
+				if ((action & MotionEvent.ACTION_MASK) == MotionEvent.ACTION_CANCEL) {
+					mGestureEngine.onCancel();
+					releaseOverscroll();
+				}
 
 				if (mVelocityTracker != null) {
 					mVelocityTracker.recycle();
@@ -1109,13 +3412,94 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	protected void onDraw(Canvas canvas) {
 		super.onDraw(canvas);
 		mReaderHelper.getMaxSupprtBitmapHeight(canvas, this);
-		// In rebound anim
-		if (animationStartTime > 0) {
-			drawReboundAnim(canvas);
+		currentMatrix.getValues(curMatrixArr);
+		canvas.setMatrix(currentMatrix);
+		currentScale = curMatrixArr[Matrix.MSCALE_Y];
+		// The stretch is in screen pixels, the canvas is already scaled
+		if (mOverscroll.isStretched()) {
+			canvas.translate(0, mOverscroll.getOffset() / currentScale);
+		}
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		// onDraw sets the zoom matrix on the canvas, restore it so the fast scroll thumb is drawn in screen coordinates
+		int saveCount = canvas.save();
+		super.draw(canvas);
+		canvas.restoreToCount(saveCount);
+		if (mFastScroller != null) {
+			mFastScroller.draw(canvas);
+		}
+	}
+
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+		drawDividers(canvas);
+	}
+
+	/**
+	 * Draws the divider in every visible gap between rows, under the zoom matrix set in onDraw. A color divider, the usual case,
+	 * is drawn as a single path, so a frame costs one draw however many gaps are visible
+	 * @param canvas
+	 */
+	private void drawDividers(Canvas canvas) {
+		int childCount = getChildCount();
+		if (mDivider == null || mDividerHeight <= 0 || childCount == 0 || mTilesAttached) {
+			return;
+		}
+
+		// Keep the on screen thickness when the divider does not follow the zoom, the gap itself always does
+		float thickness = mDividerHeight;
+		if (!mDividerScalesWithZoom && currentScale > 0) {
+			thickness = Math.min(mDividerHeight, mDividerHeight / currentScale);
+		}
+		float inset = (mDividerHeight - thickness) / 2;
+
+		int left = getPaddingLeft();
+		int right = getWidth() - getPaddingRight();
+		boolean batched = mDivider instanceof ColorDrawable;
+		if (batched) {
+			mDividerPath.rewind();
+		}
+
+		// The gap above the topmost row, which belongs to the row before it
+		if (mTopViewAdapterIndex > 0) {
+			float gapTop = mSlots.getTop(0) - mDividerHeight;
+			addDivider(canvas, batched, left, gapTop + inset, right, gapTop + inset + thickness);
+		}
+		int rowStart = 0;
+		while (rowStart < childCount) {
+			int rowChildCount = getRowChildCount(rowStart);
+			if (isLastItemInAdapter(mTopViewAdapterIndex + rowStart + rowChildCount - 1)) {
+				break;
+			}
+			float gapTop = getRowBottom(rowStart);
+			addDivider(canvas, batched, left, gapTop + inset, right, gapTop + inset + thickness);
+			rowStart += rowChildCount;
+		}
+
+		if (batched && !mDividerPath.isEmpty()) {
+			mDividerPaint.setColor(((ColorDrawable) mDivider).getColor());
+			canvas.drawPath(mDividerPath, mDividerPaint);
+		}
+	}
+
+	/**
+	 * Adds a divider to the batched path, or draws it at once when the divider cannot be batched
+	 * @param canvas
+	 * @param batched
+	 * @param left
+	 * @param top
+	 * @param right
+	 * @param bottom
+	 */
+	private void addDivider(Canvas canvas, boolean batched, int left, float top, int right, float bottom) {
+		if (batched) {
+			mDividerPath.addRect(left, top, right, bottom, Path.Direction.CW);
 		} else {
-			currentMatrix.getValues(curMatrixArr);
-			canvas.setMatrix(currentMatrix);
-			currentScale = curMatrixArr[Matrix.MSCALE_Y];
+			mDivider.setBounds(left, Math.round(top), right, Math.round(bottom));
+			mDivider.draw(canvas);
 		}
 	}
 
@@ -1125,6 +3509,18 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
 		super.onLayout(changed, left, top, right, bottom);
 
+		long start = mReplayProbe != null ? System.nanoTime() : 0;
+		layoutList();
+		if (mReplayProbe != null) {
+			mReplayProbe.onLayout(System.nanoTime() - start);
+		}
+		publishVisibleRange();
+	}
+
+	/**
+	 * Lays the children out at the current scroll position, adding and removing them as needed
+	 */
+	private void layoutList() {
 		if (mAdapter == null) {
 			return;
 		}
@@ -1133,6 +3529,10 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 		// If the data changed then reset everything and render from scratch at the same offset at last time
 		if (mDataChanged) {
 			mMaxY = Integer.MAX_VALUE;
+			if (mReanchorPending) {
+				reanchorToTopmostChild();
+			}
+			mReanchorPending = false;
 //			int oldCurrentY = mCurrentY;
 //			initView();
 //			removeAllViewsInLayout();
@@ -1140,6 +3540,23 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			mDataChanged = false;
 		}
 
+		if (isStitching()) {
+			layoutStitched(true);
+			return;
+		}
+		if (mTilesAttached) {
+			// The children laid out per item take the position over from the tiles
+			if (mReadingMode == READING_MODE_SCROLL && mPendingJumpIndex < 0) {
+				mPendingJumpIndex = mTopViewAdapterIndex;
+				mPendingJumpOffset = -mDisplayOffset;
+			}
+			detachTiles();
+		}
+
+		if (mReadingMode == READING_MODE_PAGED) {
+			layoutPaged();
+			return;
+		}
 
 		// If restoring from a rotation
 		if (mRestoreY != null) {
@@ -1157,6 +3574,14 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
 		}
 
+		if (mPendingJumpIndex >= 0) {
+			layoutPendingJump();
+			if (determinMaxY()) {
+				layoutList();
+			}
+			return;
+		}
+
 		int dy = mCurrentY - mNextY;
 
 		removeUnnecessaryViews(dy);
@@ -1166,32 +3591,143 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 		mCurrentY = mNextY;
 
 		if (determinMaxY()) {
-			onLayout(changed, left, top, right, bottom);
+			layoutList();
 		}
 	}
 
-	@Override
-	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-		mWidthMeasureSpec = widthMeasureSpec;
+	/**
+	 * Lays the stitched canvas out at the current scroll position. Every item's offset is indexed, so the whole canvas is known
+	 * and laying it out costs O(log n) whatever the scroll distance. A tile keeps what it has drawn while it is only moved,
+	 * it is drawn again when it moves on to another part of the canvas or when the canvas may have changed
+	 * @param invalidateAll whether the canvas may have changed, e.g. after a data set change
+	 */
+	private void layoutStitched(boolean invalidateAll) {
+		if (!mTilesAttached) {
+			// The tiles take the position over from the children laid out per item
+			if (getChildCount() > 0 && mPendingJumpIndex < 0) {
+				mPendingJumpIndex = mTopViewAdapterIndex;
+				mPendingJumpOffset = getTopmostRowOffset();
+			}
+			recycleAllChildren();
+			attachTiles();
+			invalidateAll = true;
+		}
+
+		ItemHeightIndex heightIndex = getHeightIndex();
+		int itemCount = mAdapter.getCount();
+		int renderHeight = getRenderHeight();
+
+		// If restoring from a rotation
+		if (mRestoreY != null) {
+			mNextY = mRestoreY;
+			mRestoreY = null;
+		}
+		if (mPendingJumpIndex >= 0) {
+			int index = Math.max(0, Math.min(mPendingJumpIndex, itemCount - 1));
+			mNextY = (int) heightIndex.offsetOf(index) + mPendingJumpOffset;
+			mPendingJumpIndex = -1;
+		}
+
+		// The end of the canvas is known up front
+		mMaxY = (int) getIndexedScrollRange();
+		if (mNextY < 0) {
+			mNextY = 0;
+			setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
+		} else if (mNextY > mMaxY) {
+			mNextY = mMaxY;
+			setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
+		}
+
+		// The tiles are as high as the screen and cover it at the min scale, tile i drawing every STITCH_TILE_COUNT-th tile of the canvas
+		int tileHeight = Math.max(1, renderHeight);
+		int tileWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+		int firstTile = mNextY / tileHeight;
+		for (int i = 0; i < STITCH_TILE_COUNT; i++) {
+			int tileIndex = firstTile + i;
+			StitchTile tile = mStitchTiles.get(tileIndex % STITCH_TILE_COUNT);
+			if (tile.getMeasuredWidth() != tileWidth || tile.getMeasuredHeight() != tileHeight) {
+				tile.measure(MeasureSpec.makeMeasureSpec(tileWidth, MeasureSpec.EXACTLY),
+						MeasureSpec.makeMeasureSpec(tileHeight, MeasureSpec.EXACTLY));
+				invalidateAll = true;
+			}
+			int top = getPaddingTop() + tileIndex * tileHeight - mNextY;
+			tile.layout(getPaddingLeft(), top, getPaddingLeft() + tileWidth, top + tileHeight);
+			if (tile.setTileIndex(tileIndex) || invalidateAll) {
+				tile.invalidate();
+			}
+		}
+
+		// The visible slices are the attached range, so the tracking, prefetching and decoding go on as with a child per item
+		int dy = mCurrentY - mNextY;
+		if (itemCount > 0) {
+			mTopViewAdapterIndex = heightIndex.indexAt(mNextY);
+			mBottomViewAdapterIndex = heightIndex.indexAt(mNextY + renderHeight - 1);
+			long sliceOffset = heightIndex.offsetOf(mTopViewAdapterIndex);
+			mDisplayOffset = (int) (sliceOffset - mNextY);
+
+			isFirstVisibleItem = true;
+			for (int i = mTopViewAdapterIndex; i <= mBottomViewAdapterIndex; i++) {
+				int top = getPaddingTop() + (int) (sliceOffset - mNextY);
+				int height = heightIndex.get(i);
+				onItemPositioned(i, (ComicSectionPicInfo) mAdapter.getItem(i), top, top + height, height, dy);
+				sliceOffset += height;
+			}
+		}
+		mCurrentY = mNextY;
+
+		schedulePrefetchCheck();
+		if (mDecodeScheduler != null) {
+			mDecodeScheduler.dispatch();
+		}
 	}
 
 	/**
-	 * Get the height of the canvas (the sum of all children's and divider's height)
-	 * @return
+	 * Attaches the tiles in place of the children, which must have been removed. The tiles hold no slot, see AttachedSlots
 	 */
-	private int getCanvasHeight() {
-		int childCount = getChildCount();
-		int canvasHeight = 0;
-		for (int i = 0; i < childCount; i++) {
-			View child = getChildAt(i);
-			if (i < childCount - 1) {
-				canvasHeight += child.getMeasuredHeight() + mDividerHeight;
-			} else {
-				canvasHeight += child.getMeasuredHeight();
+	private void attachTiles() {
+		mSlots.clear();
+		while (mStitchTiles.size() < STITCH_TILE_COUNT) {
+			mStitchTiles.add(new StitchTile(getContext()));
+		}
+		for (int i = 0; i < STITCH_TILE_COUNT; i++) {
+			StitchTile tile = mStitchTiles.get(i);
+			tile.setTileIndex(-1);
+			addViewInLayout(tile, i, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+					ViewGroup.LayoutParams.MATCH_PARENT), true);
+		}
+		mTilesAttached = true;
+	}
+
+	private void detachTiles() {
+		removeAllViewsInLayout();
+		mTilesAttached = false;
+	}
+
+	private void invalidateTiles() {
+		if (mTilesAttached) {
+			for (StitchTile tile : mStitchTiles) {
+				tile.invalidate();
 			}
 		}
-		return canvasHeight;
+	}
+
+	/**
+	 * Whether the scroll can be applied by moving the tiles, without a layout
+	 * @return
+	 */
+	private boolean canMoveTiles() {
+		return mTilesAttached && isStitching() && !mDataChanged && mPendingJumpIndex < 0 && mRestoreY == null
+				&& !isLayoutRequested();
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		// Row extents depend on the column width when there are several columns
+		if (mLayoutStrategy.getColumnCount() > 1 && MeasureSpec.getSize(widthMeasureSpec) != MeasureSpec.getSize(mWidthMeasureSpec)) {
+			mHeightIndexDirty = true;
+		}
+		mWidthMeasureSpec = widthMeasureSpec;
 	}
 
 	private void onReachHeader() {
@@ -1200,6 +3736,9 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			if (mPageChangedListener != null) {
 				mPageChangedListener.onHeader();
 			}
+			if (mChapterWindow != null) {
+				mChapterWindow.requestPrevious();
+			}
 			mFlingTracker.endFling();
 		}
 	}
@@ -1210,76 +3749,63 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			if (mPageChangedListener != null) {
 				mPageChangedListener.onFooter();
 			}
+			if (mChapterWindow != null) {
+				mChapterWindow.requestNext();
+			}
 		}
 
 	}
 
 	/**
-	 * Check whether the container has scrolled to the header
-	 * @param deltaY
+	 * Handles a fling, smooth scroll or auto scroll running past either end. While zoomed the viewport moves towards the end
+	 * first and what it cannot take goes on as overscroll, computed from the viewport and the zoom so it costs O(1)
 	 */
-	private void checkReachHeader(float deltaY) {
+	private void checkEdges() {
+		float overflow;
 		if (mNextY < 0) {
-			if (currentScale > 1) {
-				currentMatrix.preTranslate(0, -deltaY);
-				currentMatrix.getValues(curMatrixArr);
-				if (curMatrixArr[Matrix.MTRANS_Y] > 0) {
-					curMatrixArr[Matrix.MTRANS_Y] = 0;
-					currentMatrix.setValues(curMatrixArr);
-					onReachHeader();
-
-				} else {
-					headerStatus = HEADER_STATUS_IDLE;
-				}
-			} else {
-				onReachHeader();
-				mFlingTracker.endFling();
-			}
+			overflow = mNextY + mNextYRemainder;
+			mNextY = 0;
+		} else if (mNextY > mMaxY) {
+			overflow = mNextY + mNextYRemainder - mMaxY;
+			mNextY = mMaxY;
 		} else {
 			if (mNextY != 0) {
 				headerStatus = HEADER_STATUS_IDLE;
 			}
-		}
-	}
-
-	/**
-	 * Check whether the container has scrolled to the footer
-	 * @param deltaY
-	 */
-	private void checkReachFooter(float deltaY) {
-		if (mNextY > mMaxY) {
-			if (currentScale > 1) {
-				currentMatrix.preTranslate(0, -deltaY);
-				currentMatrix.getValues(curMatrixArr);
-
-				int virtualTopOffset = getHeight() - (int)(mDisplayOffset*curMatrixArr[Matrix.MSCALE_Y] + curMatrixArr[Matrix.MTRANS_Y]);
-				int virutialHeight = (int)(getCanvasHeight() * curMatrixArr[Matrix.MSCALE_Y]);
-				if (virtualTopOffset > virutialHeight) {
-					curMatrixArr[Matrix.MTRANS_Y] = (getHeight() - virutialHeight) - (mDisplayOffset * curMatrixArr[Matrix.MSCALE_Y]);
-					currentMatrix.setValues(curMatrixArr);
-					onReachFooter();
-				} else {
-					footerStatus = FOOTER_STATUS_IDLE;
-				}
-
-			} else {
-				onReachFooter();
-			}
-		} else {
 			if (mNextY != mMaxY) {
 				footerStatus = FOOTER_STATUS_IDLE;
 			}
-
+			return;
+		}
+		mNextYRemainder = 0;
+		if (currentScale > 1) {
+			syncGestureEngine();
+			mGestureEngine.scrollViewport(-overflow * currentScale);
+		} else {
+			onOverscrolled(overflow);
 		}
 	}
 
 	/**
-	 * Used to handle the fling gesture via a runnable
+	 * Used to handle the fling gesture, smooth scrolls and auto scroll via a runnable run once per frame
 	 */
 	private class FlingTracker implements Runnable {
 
+		// Defines what drives the tracker
+		private static final int MODE_FLING = 0;
+		private static final int MODE_SCROLL = 1;
+		private static final int MODE_AUTO_SCROLL = 2;
+		private static final int MODE_PAGE_SNAP = 3;
+
 		private final Scroller mScroller;
 
+		private int mMode = MODE_FLING;
+
+		// The auto scroll speed in pixels per millisecond, and the sub-pixel distance not scrolled yet
+		private float mAutoScrollSpeed;
+		private float mAutoScrollRemainder;
+		private long mLastFrameTime;
+
 		private int mLastFlingX;
 		private int mLastFlingY;
 
@@ -1302,6 +3828,22 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			return !mIsScrolling;
 		}
 
+		public boolean isAutoScrolling() {
+			return mIsScrolling && mMode == MODE_AUTO_SCROLL;
+		}
+
+		public boolean isFlinging() {
+			return mIsScrolling && mMode == MODE_FLING;
+		}
+
+		/**
+		 * Gets the speed of the running fling, in pixels per second
+		 * @return
+		 */
+		public float getScrollerVelocity() {
+			return mScroller.getCurrVelocity();
+		}
+
 		public void setFriction(float friction) {
 			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
 				mScroller.setFriction(friction);
@@ -1309,6 +3851,8 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 		}
 
 		public void start(int initialVelocityX, int initialVelocityY) {
+			stopCurrent();
+			mMode = MODE_FLING;
 
 			//int initialX = getScrollX();
 			//int initialY = mNextY + getScrollY();
@@ -1331,14 +3875,64 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			if (mLastFlingY == 0) {
 				mLastFlingY = -10;
 			}
-			post(this);
+			postOnFrame(this);
 			if (mFlingListener != null) {
 				mFlingListener.onFlingStart();
 			}
 		}
 
+		public void startScroll(int dy, int duration) {
+			stopCurrent();
+			mMode = MODE_SCROLL;
+			mLastFlingX = 0;
+			mLastFlingY = 0;
+			mStartTime = System.currentTimeMillis();
+			mIsScrolling = true;
+			mScroller.startScroll(0, 0, 0, dy, duration);
+			postOnFrame(this);
+		}
+
+		public void startAutoScroll(int pixelsPerSecond) {
+			stopCurrent();
+			mMode = MODE_AUTO_SCROLL;
+			mAutoScrollSpeed = pixelsPerSecond / 1000f;
+			mAutoScrollRemainder = 0;
+			mLastFrameTime = AnimationUtils.currentAnimationTimeMillis();
+			mStartTime = System.currentTimeMillis();
+			mIsScrolling = true;
+			postOnFrame(this);
+		}
+
+		public void startPageSnap(int startScrollX, int targetScrollX, int duration) {
+			stopCurrent();
+			mMode = MODE_PAGE_SNAP;
+			mIsScrolling = true;
+			mScroller.startScroll(startScrollX, 0, targetScrollX - startScrollX, 0, duration);
+			postOnFrame(this);
+		}
+
+		/**
+		 * Stops whatever is running, used when one movement replaces another. A fling being replaced is reported as ended,
+		 * so the fling listener always sees an end for every start
+		 */
+		private void stopCurrent() {
+			removeCallbacks(this);
+			mScroller.abortAnimation();
+			if (mIsScrolling && mMode == MODE_FLING && mFlingListener != null) {
+				mFlingListener.onFlingEnd();
+			}
+		}
+
 		@Override
 		public void run() {
+			if (mMode == MODE_AUTO_SCROLL) {
+				runAutoScroll();
+				return;
+			}
+			if (mMode == MODE_PAGE_SNAP) {
+				runPageSnap();
+				return;
+			}
 			boolean more = mScroller.computeScrollOffset();
 			final int y = mScroller.getCurrY();
 			int deltaY = y - mLastFlingY;
@@ -1357,27 +3951,66 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 
 			currentMatrix.postTranslate(deltaX, 0);
 			checkMoveMatrix(currentMatrix, curMatrixArr);
-			if (more && (deltaX != 0 || deltaY != 0)) {
+			// A smooth scroll may not move a whole pixel in a frame, so keep it running until the scroller has finished
+			if (more && (deltaX != 0 || deltaY != 0 || mMode == MODE_SCROLL)) {
 
 				float fixedDeltaY = deltaY/curMatrixArr[Matrix.MSCALE_Y];
-				mNextY += fixedDeltaY;
-
-				checkReachHeader(fixedDeltaY);
-				checkReachFooter(fixedDeltaY);
+				scrollNextYBy(fixedDeltaY);
+				checkEdges();
 				mLastFlingY = y;
 				mLastFlingX = x;
-				requestLayout();
-				post(this);
+				// Already on a frame, so the scroll is applied right away
+				applyPendingScroll();
+				invalidate();
+				postOnFrame(this);
 				calcateCurrentVelocity(deltaY);
-				if (mFlingListener != null) {
+				if (!mLowResolutionChildren.isEmpty() && !isLowResolutionBinding()) {
+					upgradeLowResolutionChildren();
+				}
+				if (mMode == MODE_FLING && mFlingListener != null) {
 					mFlingListener.onFling();
 				}
 			} else {
-				System.out.println("normal end");
 				endFling();
 			}
 		}
 
+		private void runPageSnap() {
+			boolean more = mScroller.computeScrollOffset();
+			if (more) {
+				setPageScrollX(mScroller.getCurrX());
+				postOnFrame(this);
+			} else {
+				int targetScrollX = mScroller.getFinalX();
+				endFling();
+				onPageSnapped(targetScrollX);
+			}
+		}
+
+		private void runAutoScroll() {
+			long frameTime = AnimationUtils.currentAnimationTimeMillis();
+			mAutoScrollRemainder += mAutoScrollSpeed * (frameTime - mLastFrameTime);
+			mLastFrameTime = frameTime;
+
+			int deltaY = (int) mAutoScrollRemainder;
+			mAutoScrollRemainder -= deltaY;
+			if (deltaY != 0) {
+				currentMatrix.getValues(curMatrixArr);
+				float fixedDeltaY = deltaY / curMatrixArr[Matrix.MSCALE_Y];
+				scrollNextYBy(fixedDeltaY);
+				checkEdges();
+				applyPendingScroll();
+				calcateCurrentVelocity(deltaY);
+				// Reaching the end it scrolls towards ends the auto scroll, so it does not post itself every frame for nothing
+				if ((mAutoScrollSpeed > 0 && mNextY >= mMaxY) || (mAutoScrollSpeed < 0 && mNextY <= 0)) {
+					endFling();
+				}
+			}
+			if (mIsScrolling) {
+				postOnFrame(this);
+			}
+		}
+
 		private void calcateCurrentVelocity(int deltaY) {
 			long currentTime = System.currentTimeMillis();
 			long duration = System.currentTimeMillis() - mStartTime;
@@ -1394,9 +4027,111 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 			removeCallbacks(this);
 			mScroller.abortAnimation();
 			mCurrentVelocity = 0;
-			if (mFlingListener != null) {
+			if (mCurrentScrollState == OnScrollStateChangedListener.SCROLL_STATE_FLING) {
+				setCurrentScrollState(OnScrollStateChangedListener.SCROLL_STATE_IDLE);
+			}
+			if (mMode == MODE_FLING && mFlingListener != null) {
 				mFlingListener.onFlingEnd();
 			}
+			if (!mScrubbing) {
+				upgradeLowResolutionChildren();
+			}
+		}
+	}
+
+	/**
+	 * Draws the fast scroll thumb and turns drags on it into scrubbing over the whole adapter
+	 */
+	private class FastScroller implements Runnable {
+
+		private final Paint mThumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		private final RectF mThumbRect = new RectF();
+
+		private final int mThumbWidth;
+		private final int mThumbHeight;
+		private final int mTouchWidth;
+
+		private boolean mVisible = false;
+		private boolean mDragging = false;
+
+		// The distance between the finger and the thumb's top edge when the drag started
+		private float mDragOffsetY;
+
+		private FastScroller() {
+			float density = getResources().getDisplayMetrics().density;
+			mThumbWidth = (int) (FAST_SCROLL_THUMB_WIDTH_DP * density);
+			mThumbHeight = (int) (FAST_SCROLL_THUMB_HEIGHT_DP * density);
+			mTouchWidth = (int) (FAST_SCROLL_TOUCH_WIDTH_DP * density);
+			mThumbPaint.setColor(FAST_SCROLL_THUMB_COLOR);
+		}
+
+		public void show() {
+			mVisible = true;
+			removeCallbacks(this);
+			postDelayed(this, FAST_SCROLL_HIDE_DELAY);
+			invalidate();
+		}
+
+		@Override
+		public void run() {
+			if (!mDragging) {
+				mVisible = false;
+				invalidate();
+			}
+		}
+
+		private float getThumbTop() {
+			return getScrollFraction() * (getHeight() - mThumbHeight);
+		}
+
+		public boolean onTouchEvent(MotionEvent event) {
+			switch (event.getAction() & MotionEvent.ACTION_MASK) {
+				case MotionEvent.ACTION_DOWN: {
+					float thumbTop = getThumbTop();
+					if (mVisible && event.getX() >= getWidth() - mTouchWidth
+							&& event.getY() >= thumbTop - mTouchSlop && event.getY() <= thumbTop + mThumbHeight + mTouchSlop) {
+						mDragging = true;
+						mDragOffsetY = event.getY() - thumbTop;
+						removeCallbacks(this);
+						final ViewParent parent = getParent();
+						if (parent != null) {
+							parent.requestDisallowInterceptTouchEvent(true);
+						}
+						startScrub();
+						return true;
+					}
+					return false;
+				}
+				case MotionEvent.ACTION_MOVE: {
+					if (mDragging) {
+						int trackHeight = getHeight() - mThumbHeight;
+						scrubTo(trackHeight > 0 ? (event.getY() - mDragOffsetY) / trackHeight : 0);
+						invalidate();
+						return true;
+					}
+					return false;
+				}
+				case MotionEvent.ACTION_UP:
+				case MotionEvent.ACTION_CANCEL: {
+					if (mDragging) {
+						mDragging = false;
+						endScrub();
+						show();
+						return true;
+					}
+					return false;
+				}
+			}
+			return mDragging;
+		}
+
+		public void draw(Canvas canvas) {
+			if (!mVisible) {
+				return;
+			}
+			float thumbTop = getThumbTop();
+			mThumbRect.set(getWidth() - mThumbWidth, thumbTop, getWidth(), thumbTop + mThumbHeight);
+			canvas.drawRect(mThumbRect, mThumbPaint);
 		}
 	}
 
@@ -1416,13 +4151,7 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 
 		@Override
 		public boolean onDoubleTap(MotionEvent e) {
-			if (currentScale <= 1) {
-				targetMatrix.setScale(MAX_SCALE, MAX_SCALE, e.getX(), e.getY());
-			} else {
-				targetMatrix.reset();
-			}
-			animationStartTime = System.currentTimeMillis();
-			invalidate();
+			animateZoom(mZoomAnimator.getNextStep(currentScale), e.getX(), e.getY(), 0);
 			return false;
 		}
 
@@ -1433,6 +4162,26 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 	};
 
 
+	/**
+	 * Describes an item to accessibility services
+	 */
+	public static interface ItemDescriber {
+		/**
+		 * @param adapterIndex
+		 * @param picInfo
+		 * @param itemCount
+		 * @return the text read out for the item
+		 */
+		CharSequence describeItem(int adapterIndex, ComicSectionPicInfo picInfo, int itemCount);
+	}
+
+	/**
+	 * Listener notified when the zoom stops changing, to decode the visible region at the new scale
+	 */
+	public static interface OnZoomSettledListener {
+		void onZoomSettled(float scale);
+	}
+
 	/**
 	 * Listeners to receive callbacks when page state changed
 	 */
@@ -1451,6 +4200,154 @@ public class ScrollReaderListView extends AdapterView<ListAdapter> {
 		void onFlingEnd();
 	}
 
+	/**
+	 * Counts the binds done at each resolution. Low resolution binds which never had to be upgraded are
+	 * full decodes saved, their children left the screen before the fling slowed down
+	 */
+	public static class LowResolutionStats {
+
+		private int mFullResolutionBinds;
+		private int mLowResolutionBinds;
+		private int mUpgradedBinds;
+
+		public int getFullResolutionBinds() {
+			return mFullResolutionBinds;
+		}
+
+		public int getLowResolutionBinds() {
+			return mLowResolutionBinds;
+		}
+
+		public int getUpgradedBinds() {
+			return mUpgradedBinds;
+		}
+
+		public int getSavedDecodes() {
+			return mLowResolutionBinds - mUpgradedBinds;
+		}
+
+		public void reset() {
+			mFullResolutionBinds = 0;
+			mLowResolutionBinds = 0;
+			mUpgradedBinds = 0;
+		}
+
+		@Override
+		public String toString() {
+			return "LowResolutionStats{full=" + mFullResolutionBinds + ", low=" + mLowResolutionBinds
+					+ ", upgraded=" + mUpgradedBinds + ", saved=" + getSavedDecodes() + "}";
+		}
+	}
+
+	/**
+	 * Draws the slices of the stitched canvas, see {@link #setStitchMode(boolean)}. Slices are drawn clipped to the part
+	 * a tile covers, and should submit their decodes through {@link #getDecodeScheduler()} then call
+	 * {@link #invalidateSlice(int)} once decoded instead of decoding while drawing
+	 */
+	public static interface SliceRenderer {
+		/**
+		 * Draws a slice on a tile
+		 * @param canvas
+		 * @param adapterIndex
+		 * @param picInfo
+		 * @param top the slice's top edge relative to the tile, negative when the slice starts on a tile above
+		 * @param width
+		 * @param height
+		 */
+		void drawSlice(Canvas canvas, int adapterIndex, ComicSectionPicInfo picInfo, int top, int width, int height);
+	}
+
+	/**
+	 * A tile of the stitched canvas as high as the screen, drawing the part of every slice it covers
+	 */
+	private class StitchTile extends View {
+
+		// The tile's position on the canvas, in tile heights, or -1 when it has not been placed
+		private int mTileIndex = -1;
+
+		private StitchTile(Context context) {
+			super(context);
+		}
+
+		/**
+		 * Places the tile on the canvas
+		 * @param tileIndex
+		 * @return whether the tile has moved on to another part of the canvas and must be drawn again
+		 */
+		boolean setTileIndex(int tileIndex) {
+			if (mTileIndex == tileIndex) {
+				return false;
+			}
+			mTileIndex = tileIndex;
+			return true;
+		}
+
+		long getCanvasTop() {
+			return (long) mTileIndex * getHeight();
+		}
+
+		@Override
+		protected void onDraw(Canvas canvas) {
+			if (mSliceRenderer == null || mAdapter == null || mTileIndex < 0) {
+				return;
+			}
+			ItemHeightIndex heightIndex = getHeightIndex();
+			long tileTop = getCanvasTop();
+			long tileBottom = tileTop + getHeight();
+			if (tileTop >= heightIndex.total()) {
+				return;
+			}
+			int width = getWidth();
+			int itemCount = Math.min(heightIndex.getCount(), mAdapter.getCount());
+			int first = heightIndex.indexAt(tileTop);
+			long sliceOffset = heightIndex.offsetOf(first);
+			for (int i = first; i < itemCount && sliceOffset < tileBottom; i++) {
+				int top = (int) (sliceOffset - tileTop);
+				int height = heightIndex.get(i);
+				canvas.save();
+				canvas.clipRect(0, Math.max(0, top), width, Math.min(getHeight(), top + height));
+				mSliceRenderer.drawSlice(canvas, i, (ComicSectionPicInfo) mAdapter.getItem(i), top, width, height);
+				canvas.restore();
+				sliceOffset += height;
+			}
+		}
+	}
+
+	/**
+	 * Implemented by adapters whose views display a bitmap, so its pixel buffer can be reused when the view is recycled
+	 */
+	public static interface BitmapReleaser {
+		/**
+		 * Detaches the bitmap from a view being recycled. The view must no longer draw it
+		 * @param view
+		 * @return the bitmap, or null if the view displays none
+		 */
+		Bitmap releaseBitmap(View view);
+	}
+
+	/**
+	 * Implemented by adapters which can update an attached view with a change, instead of binding it entirely in getView
+	 */
+	public static interface PartialBinder {
+		/**
+		 * Updates the attached view of the item with the change described by the payload
+		 * @param adapterIndex
+		 * @param view
+		 * @param payload
+		 * @return whether the view has been updated, otherwise it is bound again through getView
+		 */
+		boolean onBindPayload(int adapterIndex, View view, Object payload);
+	}
+
+	/**
+	 * Listeners to receive callbacks when the user scrubs through the chapter
+	 */
+	public static interface OnScrubListener {
+		void onScrubStart();
+		void onScrub(int adapterIndex);
+		void onScrubEnd(int adapterIndex);
+	}
+
 	/**
 	 * Listeners to receive callbacks when touch
 	 */
@@ -0,0 +1,356 @@
+package com.qqcomic.widget;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Records the touch events a {@link ScrollReaderListView} receives, together with the adapter mutations made meanwhile,
+ * and replays them frame by frame to reproduce a janky scroll deterministically, e.g. headlessly on the JVM.
+ * The replay reports the layout time, the views created and the recycle pool misses of each frame, and fails
+ * when a frame exceeds the frame budget, so performance regressions can be caught by a test.
+ *
+ * Frames are replayed on the recording's time base: the {@link FrameDriver} is asked to run each frame at the time
+ * it had during the recording, and must advance the clock the container reads to that time before running
+ * the container's pending frame callbacks and layout. Mutations are applied again as recorded, so the adapter must
+ * be brought back to the state it had when the recording started before replaying
+ */
+public class ScrollReplay {
+
+	// Defines the frame interval frames are replayed at, in milliseconds
+	public static final long DEFAULT_FRAME_INTERVAL = 16;
+
+	// Defines the frame budget, in milliseconds
+	public static final long DEFAULT_FRAME_BUDGET = 16;
+
+	// Defines how many frames are replayed after the last recorded step so flings and animations settle
+	private static final int DEFAULT_SETTLE_FRAMES = 120;
+
+	private final ArrayList<Step> mSteps = new ArrayList<Step>();
+
+	private ScrollReaderListView mRecordedView;
+
+	private long mFrameInterval = DEFAULT_FRAME_INTERVAL;
+	private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET * 1000000L;
+	private int mSettleFrames = DEFAULT_SETTLE_FRAMES;
+
+	/**
+	 * Starts recording what the given container receives, until {@link #stop()}
+	 * @param view
+	 * @return the recording
+	 */
+	public static ScrollReplay record(ScrollReaderListView view) {
+		ScrollReplay replay = new ScrollReplay();
+		replay.mRecordedView = view;
+		view.setReplayRecording(replay);
+		return replay;
+	}
+
+	public void stop() {
+		if (mRecordedView != null) {
+			mRecordedView.setReplayRecording(null);
+			mRecordedView = null;
+		}
+	}
+
+	public void setFrameInterval(long frameIntervalMillis) {
+		if (frameIntervalMillis <= 0) {
+			throw new IllegalArgumentException("frameInterval must be positive: " + frameIntervalMillis);
+		}
+		mFrameInterval = frameIntervalMillis;
+	}
+
+	/**
+	 * Sets the layout time a frame may take at most before the replay fails
+	 * @param frameBudgetMillis
+	 */
+	public void setFrameBudget(long frameBudgetMillis) {
+		mFrameBudgetNanos = frameBudgetMillis * 1000000L;
+	}
+
+	public void setSettleFrames(int settleFrames) {
+		mSettleFrames = Math.max(0, settleFrames);
+	}
+
+	/**
+	 * Applies an adapter mutation, and records it while recording so it is applied again at the same time on replay
+	 * @param mutation
+	 */
+	public void mutate(Mutation mutation) {
+		mutation.apply();
+		if (mRecordedView != null) {
+			mSteps.add(new Step(SystemClock.uptimeMillis(), null, mutation));
+		}
+	}
+
+	/**
+	 * Records a touch event received by the container
+	 * @param event
+	 */
+	void recordMotionEvent(MotionEvent event) {
+		mSteps.add(new Step(event.getEventTime(), MotionEvent.obtain(event), null));
+	}
+
+	public int getStepCount() {
+		return mSteps.size();
+	}
+
+	/**
+	 * Replays the recording against the given container, which should be laid out as the recorded one was
+	 * @param view
+	 * @param driver
+	 * @return the per frame report
+	 */
+	public Report replay(ScrollReaderListView view, FrameDriver driver) {
+		Report report = new Report(mFrameBudgetNanos);
+		if (mSteps.isEmpty()) {
+			return report;
+		}
+		// The events delivered on replay are not recorded again, and the steps are iterated from a copy should anything be recorded meanwhile
+		ArrayList<Step> steps = new ArrayList<Step>(mSteps);
+		boolean recording = mRecordedView == view;
+		if (recording) {
+			view.setReplayRecording(null);
+		}
+		FrameProbe probe = new FrameProbe();
+		view.setReplayProbe(probe);
+		try {
+			long frameTime = steps.get(0).time;
+			long lastStepTime = steps.get(steps.size() - 1).time;
+			long endTime = lastStepTime + mSettleFrames * mFrameInterval;
+			int next = 0;
+			while (frameTime <= endTime) {
+				probe.reset();
+				int bitmapMisses = view.getBitmapPool().getMissCount();
+
+				// The steps recorded since the previous frame are delivered before it runs, as input is on a device
+				while (next < steps.size() && steps.get(next).time <= frameTime) {
+					Step step = steps.get(next++);
+					if (step.event != null) {
+						view.dispatchTouchEvent(step.event);
+					} else {
+						step.mutation.apply();
+					}
+				}
+				driver.runFrame(frameTime);
+
+				report.addFrame(frameTime, probe.mLayoutNanos, probe.mViewCreations, probe.mPoolMisses,
+						view.getBitmapPool().getMissCount() - bitmapMisses);
+				frameTime += mFrameInterval;
+			}
+		} finally {
+			view.setReplayProbe(null);
+			if (recording) {
+				view.setReplayRecording(this);
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Recycles the recorded events, the recording cannot be replayed anymore
+	 */
+	public void release() {
+		stop();
+		for (Step step : mSteps) {
+			if (step.event != null) {
+				step.event.recycle();
+			}
+		}
+		mSteps.clear();
+	}
+
+	/**
+	 * An adapter mutation, e.g. appending a chapter, applied again on replay
+	 */
+	public interface Mutation {
+		void apply();
+	}
+
+	/**
+	 * Runs the container's frames on replay
+	 */
+	public interface FrameDriver {
+		/**
+		 * Advances the clock to the given frame time and runs everything the container has posted for the frame,
+		 * including its layout. On Robolectric this is advancing the paused main looper to the frame time
+		 * @param frameTimeMillis
+		 */
+		void runFrame(long frameTimeMillis);
+	}
+
+	/**
+	 * The work measured by the container during a single frame
+	 */
+	static final class FrameProbe {
+		long mLayoutNanos;
+		int mViewCreations;
+		int mPoolMisses;
+
+		void onLayout(long nanos) {
+			mLayoutNanos += nanos;
+		}
+
+		void onViewObtained(View recycled, View obtained) {
+			if (recycled == null) {
+				mPoolMisses++;
+			}
+			if (obtained != recycled) {
+				mViewCreations++;
+			}
+		}
+
+		void reset() {
+			mLayoutNanos = 0;
+			mViewCreations = 0;
+			mPoolMisses = 0;
+		}
+	}
+
+	/**
+	 * The work of every replayed frame
+	 */
+	public static class Report {
+
+		private final long mFrameBudgetNanos;
+
+		private final ArrayList<long[]> mFrames = new ArrayList<long[]>();
+
+		// The indices into a frame's values
+		private static final int FRAME_TIME = 0;
+		private static final int LAYOUT_NANOS = 1;
+		private static final int VIEW_CREATIONS = 2;
+		private static final int POOL_MISSES = 3;
+		private static final int BITMAP_POOL_MISSES = 4;
+
+		Report(long frameBudgetNanos) {
+			mFrameBudgetNanos = frameBudgetNanos;
+		}
+
+		void addFrame(long frameTime, long layoutNanos, int viewCreations, int poolMisses, int bitmapPoolMisses) {
+			mFrames.add(new long[] {frameTime, layoutNanos, viewCreations, poolMisses, bitmapPoolMisses});
+		}
+
+		public int getFrameCount() {
+			return mFrames.size();
+		}
+
+		public long getFrameTime(int frame) {
+			return mFrames.get(frame)[FRAME_TIME];
+		}
+
+		public long getLayoutNanos(int frame) {
+			return mFrames.get(frame)[LAYOUT_NANOS];
+		}
+
+		public int getViewCreations(int frame) {
+			return (int) mFrames.get(frame)[VIEW_CREATIONS];
+		}
+
+		/**
+		 * Gets how many views were requested from the adapter without a recycled view to convert
+		 * @param frame
+		 * @return
+		 */
+		public int getPoolMisses(int frame) {
+			return (int) mFrames.get(frame)[POOL_MISSES];
+		}
+
+		/**
+		 * Gets how many bitmaps were requested from the container's bitmap pool without finding a buffer
+		 * @param frame
+		 * @return
+		 */
+		public int getBitmapPoolMisses(int frame) {
+			return (int) mFrames.get(frame)[BITMAP_POOL_MISSES];
+		}
+
+		public long getMaxLayoutNanos() {
+			long max = 0;
+			for (long[] frame : mFrames) {
+				max = Math.max(max, frame[LAYOUT_NANOS]);
+			}
+			return max;
+		}
+
+		public int getTotalViewCreations() {
+			return (int) sum(VIEW_CREATIONS);
+		}
+
+		public int getTotalPoolMisses() {
+			return (int) sum(POOL_MISSES);
+		}
+
+		public int getTotalBitmapPoolMisses() {
+			return (int) sum(BITMAP_POOL_MISSES);
+		}
+
+		/**
+		 * Gets the frames whose layout exceeded the frame budget
+		 * @return
+		 */
+		public int[] getOverBudgetFrames() {
+			int count = 0;
+			for (long[] frame : mFrames) {
+				if (frame[LAYOUT_NANOS] > mFrameBudgetNanos) {
+					count++;
+				}
+			}
+			int[] frames = new int[count];
+			int n = 0;
+			for (int i = 0; i < mFrames.size(); i++) {
+				if (mFrames.get(i)[LAYOUT_NANOS] > mFrameBudgetNanos) {
+					frames[n++] = i;
+				}
+			}
+			return frames;
+		}
+
+		/**
+		 * Fails if any frame's layout exceeded the frame budget
+		 * @throws AssertionError describing the frames over budget
+		 */
+		public void assertWithinBudget() {
+			int[] frames = getOverBudgetFrames();
+			if (frames.length == 0) {
+				return;
+			}
+			StringBuilder message = new StringBuilder();
+			message.append(frames.length).append(" of ").append(mFrames.size())
+					.append(" frames exceeded the budget of ").append(mFrameBudgetNanos / 1000000L).append("ms:");
+			for (int frame : frames) {
+				message.append(" #").append(frame).append('=').append(getLayoutNanos(frame) / 1000).append("us");
+			}
+			throw new AssertionError(message.toString());
+		}
+
+		private long sum(int value) {
+			long sum = 0;
+			for (long[] frame : mFrames) {
+				sum += frame[value];
+			}
+			return sum;
+		}
+
+		@Override
+		public String toString() {
+			return "Report{frames=" + mFrames.size() + ", maxLayout=" + getMaxLayoutNanos() / 1000 + "us"
+					+ ", viewCreations=" + getTotalViewCreations() + ", poolMisses=" + getTotalPoolMisses()
+					+ ", bitmapPoolMisses=" + getTotalBitmapPoolMisses() + ", overBudget=" + getOverBudgetFrames().length + "}";
+		}
+	}
+
+	private static class Step {
+		final long time;
+		final MotionEvent event;
+		final Mutation mutation;
+
+		Step(long time, MotionEvent event, Mutation mutation) {
+			this.time = time;
+			this.event = event;
+			this.mutation = mutation;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.qqcomic.widget;
+
+import android.graphics.Bitmap;
+import android.util.SparseArray;
+import android.view.View;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * A pool of recycled views and bitmaps shared by several {@link ScrollReaderListView}s, e.g. a preview pane, the main reader
+ * and a comments overlay, so what one container recycles is reused by the others instead of inflated or allocated again.
+ * Views are pooled by adapter class and view type. Bitmaps are pooled in a {@link BitmapBufferPool} within a global byte budget.
+ * When the budget is exceeded the least recently released bitmap of the container holding the most above its fair share
+ * (the budget divided by the attached containers) is evicted, so a busy container cannot starve the others.
+ * Views must only be pooled and taken on the UI thread, bitmaps may be taken from a decoding thread
+ */
+public class SharedReaderPool {
+
+	// Defines how many views of a single type are kept by default
+	private static final int DEFAULT_MAX_VIEWS_PER_TYPE = 8;
+
+	private int mMaxViewsPerType = DEFAULT_MAX_VIEWS_PER_TYPE;
+
+	// Recycled views by adapter class, then by view type
+	private final HashMap<Class<?>, SparseArray<LinkedList<View>>> mViews = new HashMap<Class<?>, SparseArray<LinkedList<View>>>();
+
+	// Released bitmap buffers, with the budget divided fairly between the containers
+	private final BitmapBufferPool mBitmapPool;
+
+	/**
+	 * @param maxBytes the budget of all the bitmaps held by the pool
+	 */
+	public SharedReaderPool(long maxBytes) {
+		mBitmapPool = new BitmapBufferPool(maxBytes);
+	}
+
+	public void setMaxViewsPerType(int maxViewsPerType) {
+		mMaxViewsPerType = maxViewsPerType;
+	}
+
+	/**
+	 * Registers a container sharing the pool, the budget is divided fairly between the registered containers
+	 * @param owner
+	 */
+	public void attach(Object owner) {
+		mBitmapPool.attach(owner);
+	}
+
+	/**
+	 * Unregisters a container, the bitmaps it has released stay pooled for the others until they are evicted
+	 * @param owner
+	 */
+	public void detach(Object owner) {
+		mBitmapPool.detach(owner);
+	}
+
+	/**
+	 * Pools a view recycled by a container
+	 * @param adapterClass
+	 * @param viewType
+	 * @param view
+	 * @return whether the view has been pooled, otherwise the pool is full for its type
+	 */
+	public boolean putView(Class<?> adapterClass, int viewType, View view) {
+		SparseArray<LinkedList<View>> types = mViews.get(adapterClass);
+		if (types == null) {
+			types = new SparseArray<LinkedList<View>>();
+			mViews.put(adapterClass, types);
+		}
+		LinkedList<View> views = types.get(viewType);
+		if (views == null) {
+			views = new LinkedList<View>();
+			types.put(viewType, views);
+		}
+		if (views.size() >= mMaxViewsPerType) {
+			return false;
+		}
+		views.offer(view);
+		return true;
+	}
+
+	/**
+	 * Takes a pooled view of the given adapter class and view type
+	 * @param adapterClass
+	 * @param viewType
+	 * @return the view, or null if there is none
+	 */
+	public View getView(Class<?> adapterClass, int viewType) {
+		SparseArray<LinkedList<View>> types = mViews.get(adapterClass);
+		if (types == null) {
+			return null;
+		}
+		LinkedList<View> views = types.get(viewType);
+		return views != null ? views.poll() : null;
+	}
+
+	/**
+	 * Gets the pool of bitmap buffers shared by the containers
+	 * @return
+	 */
+	public BitmapBufferPool getBitmapPool() {
+		return mBitmapPool;
+	}
+
+	/**
+	 * Pools a bitmap which is no longer displayed, so a decode of compatible dimensions can reuse its pixel buffer
+	 * @param owner the container the bitmap was displayed in
+	 * @param bitmap
+	 */
+	public void putBitmap(Object owner, Bitmap bitmap) {
+		mBitmapPool.put(owner, bitmap);
+	}
+
+	/**
+	 * Takes a pooled bitmap the given image can be decoded into, see {@link BitmapBufferPool#get(int, int, Bitmap.Config)}
+	 * @param width
+	 * @param height
+	 * @param config
+	 * @return the bitmap, or null if there is none
+	 */
+	public Bitmap getBitmap(int width, int height, Bitmap.Config config) {
+		return mBitmapPool.get(width, height, config);
+	}
+
+	/**
+	 * Gets the bytes held by the pooled bitmaps
+	 * @return
+	 */
+	public long getBytes() {
+		return mBitmapPool.getBytes();
+	}
+
+	/**
+	 * Drops every pooled view and bitmap, e.g. when the system is low on memory
+	 */
+	public void clear() {
+		mViews.clear();
+		mBitmapPool.clear();
+	}
+}
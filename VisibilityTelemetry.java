@@ -0,0 +1,296 @@
+package com.qqcomic.widget;
+
+import android.os.Process;
+import android.widget.Adapter;
+
+import com.qqcomic.entity.ComicSectionPicInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams what {@link ScrollReaderListView} shows to a background thread, which aggregates the reading time of every item.
+ * The container publishes its visible range, as the time, the items from the first to the last visible adapter index and
+ * the scale, into a single producer single consumer ring buffer whenever the range changes. The items are published rather than
+ * the indices, which shift as chapters are paged in and out. Publishing takes no lock, allocates nothing once the
+ * buffer is warm and never waits: when the consumer falls behind the buffer is full and the change is published again on
+ * the next layout. The consumer wakes up periodically, drains the buffer and adds the time every item was visible to its dwell.
+ * {@link #publish} must be called on the UI thread only, the listener is called on the consumer thread
+ */
+public class VisibilityTelemetry {
+
+	// Defines how many range changes the buffer holds, a power of two
+	public static final int DEFAULT_CAPACITY = 256;
+
+	// Defines how often the consumer drains the buffer, in milliseconds
+	private static final long DRAIN_INTERVAL = 500;
+
+	// Defines below which relative difference two scales are the same, so a pinch does not publish every frame
+	private static final float SCALE_EPSILON = 0.01f;
+
+	// The published ranges, slot i of every array describing the same range
+	private final int mMask;
+	private final long[] mTimes;
+	private final float[] mScales;
+	private final Object[][] mItems;
+	private final int[] mItemCounts;
+
+	// How many ranges have been published and consumed, each written by a single thread
+	private final AtomicLong mHead = new AtomicLong();
+	private final AtomicLong mTail = new AtomicLong();
+
+	// The last range published, read and written by the producer only
+	private int mLastFirst = -1;
+	private int mLastLast = -1;
+	private float mLastScale;
+	private Object mLastFirstItem;
+	private Object mLastLastItem;
+	private int mDroppedCount;
+
+	// The range visible since the last one consumed, read and written by the consumer only
+	private final ArrayList<ComicSectionPicInfo> mVisibleItems = new ArrayList<ComicSectionPicInfo>();
+	private final IdentityHashMap<ComicSectionPicInfo, Visit> mVisits = new IdentityHashMap<ComicSectionPicInfo, Visit>();
+	private long mVisibleSince;
+	private float mVisibleScale;
+
+	// The dwell of every item, written by the consumer
+	private final HashMap<ComicSectionPicInfo, Long> mDwells = new HashMap<ComicSectionPicInfo, Long>();
+
+	private volatile OnDwellListener mDwellListener;
+
+	private volatile Thread mConsumer;
+
+	// Held while draining, so a consumer being stopped and the one started after it never consume at the same time
+	private final Object mDrainLock = new Object();
+
+	public VisibilityTelemetry() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity how many range changes the buffer holds, rounded up to a power of two
+	 */
+	public VisibilityTelemetry(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		mMask = size - 1;
+		mTimes = new long[size];
+		mScales = new float[size];
+		mItems = new Object[size][];
+		mItemCounts = new int[size];
+	}
+
+	/**
+	 * Sets the listener notified on the consumer thread every time an item stops being visible
+	 * @param listener
+	 */
+	public void setOnDwellListener(OnDwellListener listener) {
+		mDwellListener = listener;
+	}
+
+	/**
+	 * Starts the consumer thread, if not started yet
+	 */
+	public synchronized void start() {
+		if (mConsumer != null) {
+			return;
+		}
+		mConsumer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+				Thread self = Thread.currentThread();
+				while (mConsumer == self) {
+					drain();
+					LockSupport.parkNanos(DRAIN_INTERVAL * 1000000L);
+				}
+				// Drains what was published before the stop, unless a consumer started since takes over
+				if (mConsumer == null) {
+					drain();
+				}
+			}
+		}, "ReaderTelemetry");
+		mConsumer.setDaemon(true);
+		mConsumer.start();
+	}
+
+	/**
+	 * Stops the consumer thread once it has drained the ranges published so far. A consumer started meanwhile takes over
+	 * the draining, one consumer at a time
+	 */
+	public synchronized void stop() {
+		Thread consumer = mConsumer;
+		if (consumer != null) {
+			mConsumer = null;
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Publishes the visible range if it has changed. Must be called on the UI thread
+	 * @param time in milliseconds, on the uptime clock
+	 * @param first the first visible adapter index, or -1 if nothing is visible
+	 * @param last the last visible adapter index
+	 * @param scale
+	 * @param adapter the adapter the indices are in, its items must be {@link ComicSectionPicInfo}, or null if nothing is visible
+	 */
+	public void publish(long time, int first, int last, float scale, Adapter adapter) {
+		if (adapter == null || first < 0 || last < first || last >= adapter.getCount()) {
+			first = -1;
+			last = -1;
+		}
+		Object firstItem = first >= 0 ? adapter.getItem(first) : null;
+		Object lastItem = last >= 0 ? adapter.getItem(last) : null;
+		if (first == mLastFirst && last == mLastLast && firstItem == mLastFirstItem && lastItem == mLastLastItem
+				&& Math.abs(scale - mLastScale) <= mLastScale * SCALE_EPSILON) {
+			return;
+		}
+
+		long head = mHead.get();
+		if (head - mTail.get() > mMask) {
+			// The consumer is behind, the change is published by the next call instead of waiting for it
+			mDroppedCount++;
+			return;
+		}
+		int slot = (int) (head & mMask);
+		int count = first >= 0 ? last - first + 1 : 0;
+		Object[] items = mItems[slot];
+		if (items == null || items.length < count) {
+			items = new Object[Math.max(4, count)];
+			mItems[slot] = items;
+		}
+		for (int i = 0; i < count; i++) {
+			items[i] = adapter.getItem(first + i);
+		}
+		mTimes[slot] = time;
+		mScales[slot] = scale;
+		mItemCounts[slot] = count;
+		// Ordered after the slot is written, so the consumer never reads a slot being written
+		mHead.lazySet(head + 1);
+
+		mLastFirst = first;
+		mLastLast = last;
+		mLastScale = scale;
+		mLastFirstItem = firstItem;
+		mLastLastItem = lastItem;
+	}
+
+	/**
+	 * Gets how many changes were not published because the buffer was full. Must be called on the UI thread
+	 * @return
+	 */
+	public int getDroppedCount() {
+		return mDroppedCount;
+	}
+
+	/**
+	 * Gets how long an item has been visible in total, over the visits finished so far
+	 * @param picInfo
+	 * @return in milliseconds
+	 */
+	public long getDwellMillis(ComicSectionPicInfo picInfo) {
+		synchronized (mDwells) {
+			Long dwell = mDwells.get(picInfo);
+			return dwell != null ? dwell : 0;
+		}
+	}
+
+	public void clearDwells() {
+		synchronized (mDwells) {
+			mDwells.clear();
+		}
+	}
+
+	/**
+	 * Consumes every range published so far, on the consumer thread. Only the consumers take the lock, the producer never waits for it
+	 */
+	private void drain() {
+		synchronized (mDrainLock) {
+			long tail = mTail.get();
+			long head = mHead.get();
+			while (tail < head) {
+				int slot = (int) (tail & mMask);
+				Object[] items = mItems[slot];
+				int count = mItemCounts[slot];
+				consume(mTimes[slot], mScales[slot], items, count);
+				for (int i = 0; i < count; i++) {
+					items[i] = null;
+				}
+				tail++;
+				mTail.lazySet(tail);
+			}
+		}
+	}
+
+	/**
+	 * Adds the time since the previous range to every item visible in it, and finishes the visits of the items
+	 * which are not visible anymore
+	 * @param time
+	 * @param scale
+	 * @param items
+	 * @param count
+	 */
+	private void consume(long time, float scale, Object[] items, int count) {
+		long elapsed = mVisibleItems.isEmpty() ? 0 : Math.max(0, time - mVisibleSince);
+		for (ComicSectionPicInfo picInfo : mVisibleItems) {
+			Visit visit = mVisits.get(picInfo);
+			visit.mMillis += elapsed;
+			visit.mMaxScale = Math.max(visit.mMaxScale, mVisibleScale);
+		}
+
+		for (ComicSectionPicInfo picInfo : mVisibleItems) {
+			if (!contains(items, count, picInfo)) {
+				finishVisit(picInfo, mVisits.remove(picInfo));
+			}
+		}
+		mVisibleItems.clear();
+		for (int i = 0; i < count; i++) {
+			ComicSectionPicInfo picInfo = (ComicSectionPicInfo) items[i];
+			if (!mVisits.containsKey(picInfo)) {
+				mVisits.put(picInfo, new Visit());
+			}
+			mVisibleItems.add(picInfo);
+		}
+		mVisibleSince = time;
+		mVisibleScale = scale;
+	}
+
+	private void finishVisit(ComicSectionPicInfo picInfo, Visit visit) {
+		synchronized (mDwells) {
+			Long dwell = mDwells.get(picInfo);
+			mDwells.put(picInfo, (dwell != null ? dwell : 0) + visit.mMillis);
+		}
+		OnDwellListener listener = mDwellListener;
+		if (listener != null) {
+			listener.onDwell(picInfo, visit.mMillis, visit.mMaxScale);
+		}
+	}
+
+	private static boolean contains(Object[] items, int count, Object item) {
+		for (int i = 0; i < count; i++) {
+			if (items[i] == item) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Listener notified on the consumer thread when an item stops being visible
+	 */
+	public interface OnDwellListener {
+		/**
+		 * @param picInfo
+		 * @param visitMillis how long the item has just been visible
+		 * @param maxScale the largest scale it has been read at meanwhile
+		 */
+		void onDwell(ComicSectionPicInfo picInfo, long visitMillis, float maxScale);
+	}
+
+	private static class Visit {
+		long mMillis;
+		float mMaxScale;
+	}
+}
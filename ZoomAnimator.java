@@ -0,0 +1,243 @@
+package com.qqcomic.widget;
+
+import java.util.Arrays;
+
+/**
+ * Animates the zoom of ScrollReaderListView, scale and translation together, with a critically damped spring stepped on
+ * the frame clock. The scale is interpolated geometrically, so every frame zooms by the same ratio, and the translation follows
+ * from the scale so the point zoomed about stays under the finger instead of drifting as with a per value interpolation.
+ * A pinch released with velocity carries on as a zoom fling, settling on the nearest zoom step in its direction.
+ * Nothing is allocated per frame
+ * Created for ScrollReaderListView.
+ */
+class ZoomAnimator {
+
+	// Defines the spring's natural frequency in radians per second, it settles in about a third of a second
+	private static final float SPRING_FREQUENCY = 18f;
+
+	// Defines how fast a zoom fling decays, per second, the same as the engine's pan fling
+	private static final float FLING_DECAY_RATE = 3f;
+
+	// Defines when the spring is considered at rest, in progress and progress per second
+	private static final float REST_PROGRESS = 0.001f;
+	private static final float REST_VELOCITY = 0.01f;
+
+	// Defines the longest step taken at once, so a dropped frame does not make the zoom jump
+	private static final float MAX_STEP_SECONDS = 0.05f;
+
+	// Defines below which difference two scales are the same, in natural log
+	private static final float SCALE_EPSILON = 0.0001f;
+
+	private final Host mHost;
+
+	private int mWidth;
+	private int mHeight;
+
+	private float[] mSteps = new float[] {1f};
+
+	// The scale and translation the animation starts from and ends at
+	private float mStartLogScale;
+	private float mTargetLogScale;
+	private float mStartTranslateX;
+	private float mStartTranslateY;
+	private float mTargetTranslateX;
+	private float mTargetTranslateY;
+
+	// While zooming, the content point which stays fixed on the screen and where it is on the screen
+	private boolean mZooming;
+	private float mContentX;
+	private float mContentY;
+	private float mAnchorX;
+	private float mAnchorY;
+
+	// How far the animation has gone from the start to the target, and how fast
+	private float mProgress;
+	private float mProgressVelocity;
+
+	private boolean mRunning;
+	private long mLastFrameTime;
+
+	ZoomAnimator(Host host) {
+		mHost = host;
+	}
+
+	void setViewportSize(int width, int height) {
+		mWidth = width;
+		mHeight = height;
+	}
+
+	/**
+	 * Sets the scales the zoom settles on after a fling and cycles through on double tap
+	 * @param steps at least one scale
+	 */
+	void setSteps(float[] steps) {
+		if (steps == null || steps.length == 0) {
+			throw new IllegalArgumentException("At least one zoom step is required");
+		}
+		mSteps = steps.clone();
+		Arrays.sort(mSteps);
+	}
+
+	float[] getSteps() {
+		return mSteps.clone();
+	}
+
+	boolean isRunning() {
+		return mRunning;
+	}
+
+	/**
+	 * Gets the step after the given scale, back to the first one after the last
+	 * @param scale
+	 * @return
+	 */
+	float getNextStep(float scale) {
+		for (float step : mSteps) {
+			if (step > scale * (1 + SCALE_EPSILON)) {
+				return step;
+			}
+		}
+		return mSteps[0];
+	}
+
+	/**
+	 * Animates from the given transform to the given scale, zooming about a point which stays where it is on the screen
+	 * unless the content would leave the viewport at the target scale
+	 * @param scale
+	 * @param translateX
+	 * @param translateY
+	 * @param targetScale
+	 * @param focusX
+	 * @param focusY
+	 * @param logScaleVelocity the current zoom velocity, in natural log of the scale per second
+	 * @param frameTime
+	 */
+	void animateTo(float scale, float translateX, float translateY, float targetScale, float focusX, float focusY,
+			float logScaleVelocity, long frameTime) {
+		float factor = targetScale / scale;
+		float targetTranslateX = clamp(focusX - (focusX - translateX) * factor, mWidth, targetScale);
+		float targetTranslateY = clamp(focusY - (focusY - translateY) * factor, mHeight, targetScale);
+
+		mStartLogScale = (float) Math.log(scale);
+		mTargetLogScale = (float) Math.log(targetScale);
+		mStartTranslateX = translateX;
+		mStartTranslateY = translateY;
+		mTargetTranslateX = targetTranslateX;
+		mTargetTranslateY = targetTranslateY;
+
+		float logDistance = mTargetLogScale - mStartLogScale;
+		mZooming = Math.abs(logDistance) > SCALE_EPSILON;
+		if (mZooming) {
+			// The content point mapped to the same screen point at both ends, it stays there all along
+			float scaleDistance = scale - targetScale;
+			mContentX = (targetTranslateX - translateX) / scaleDistance;
+			mContentY = (targetTranslateY - translateY) / scaleDistance;
+			mAnchorX = scale * mContentX + translateX;
+			mAnchorY = scale * mContentY + translateY;
+			mProgressVelocity = logScaleVelocity / logDistance;
+		} else {
+			mProgressVelocity = 0;
+		}
+		mProgress = 0;
+		mLastFrameTime = frameTime;
+		mRunning = true;
+	}
+
+	/**
+	 * Carries a released pinch on, to the zoom step nearest to where its velocity would take it
+	 * @param scale
+	 * @param translateX
+	 * @param translateY
+	 * @param logScaleVelocity in natural log of the scale per second
+	 * @param focusX
+	 * @param focusY
+	 * @param frameTime
+	 */
+	void fling(float scale, float translateX, float translateY, float logScaleVelocity, float focusX, float focusY, long frameTime) {
+		float projected = (float) Math.log(scale) + logScaleVelocity / FLING_DECAY_RATE;
+		float target = mSteps[0];
+		float targetDistance = Float.MAX_VALUE;
+		for (float step : mSteps) {
+			float distance = Math.abs((float) Math.log(step) - projected);
+			if (distance < targetDistance) {
+				target = step;
+				targetDistance = distance;
+			}
+		}
+		animateTo(scale, translateX, translateY, target, focusX, focusY, logScaleVelocity, frameTime);
+	}
+
+	/**
+	 * Steps the animation to the given frame time
+	 * @param frameTime
+	 * @return whether the animation goes on
+	 */
+	boolean step(long frameTime) {
+		if (!mRunning) {
+			return false;
+		}
+		float dt = Math.max(0, Math.min(MAX_STEP_SECONDS, (frameTime - mLastFrameTime) / 1000f));
+		mLastFrameTime = frameTime;
+
+		// The exact critically damped motion of the remaining distance over dt, x = (x0 + (v0 + w x0) t) e^(-w t)
+		float remaining = mProgress - 1;
+		float decay = (float) Math.exp(-SPRING_FREQUENCY * dt);
+		float b = mProgressVelocity + SPRING_FREQUENCY * remaining;
+		remaining = (remaining + b * dt) * decay;
+		mProgressVelocity = (mProgressVelocity - SPRING_FREQUENCY * b * dt) * decay;
+		mProgress = 1 + remaining;
+
+		// A fling may carry past the target, which would zoom beyond the step, it stops there instead
+		if (mProgress >= 1) {
+			mProgress = 1;
+			mProgressVelocity = 0;
+		}
+		if (1 - mProgress < REST_PROGRESS && Math.abs(mProgressVelocity) < REST_VELOCITY) {
+			mRunning = false;
+			mHost.onZoomFrame((float) Math.exp(mTargetLogScale), mTargetTranslateX, mTargetTranslateY);
+			mHost.onZoomSettled();
+			return false;
+		}
+
+		if (mZooming) {
+			float scale = (float) Math.exp(mStartLogScale + (mTargetLogScale - mStartLogScale) * mProgress);
+			mHost.onZoomFrame(scale, mAnchorX - scale * mContentX, mAnchorY - scale * mContentY);
+		} else {
+			mHost.onZoomFrame((float) Math.exp(mTargetLogScale),
+					mStartTranslateX + (mTargetTranslateX - mStartTranslateX) * mProgress,
+					mStartTranslateY + (mTargetTranslateY - mStartTranslateY) * mProgress);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the animation where it is, without settling
+	 */
+	void cancel() {
+		mRunning = false;
+	}
+
+	/**
+	 * Keeps the scaled content covering the viewport, or within it when zoomed out, as the gesture engine does
+	 * @param translate
+	 * @param size
+	 * @param scale
+	 * @return
+	 */
+	private static float clamp(float translate, int size, float scale) {
+		float slack = size - size * scale;
+		return Math.max(Math.min(0, slack), Math.min(Math.max(0, slack), translate));
+	}
+
+	/**
+	 * Interface implemented by the container being zoomed
+	 */
+	interface Host {
+		void onZoomFrame(float scale, float translateX, float translateY);
+
+		/**
+		 * Called once the animation has reached its target
+		 */
+		void onZoomSettled();
+	}
+}